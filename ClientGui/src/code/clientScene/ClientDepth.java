@@ -18,7 +18,8 @@ import java.io.ObjectOutputStream;
  * e la modalità di distanza, quindi inviare le informazioni al server.
  * <p>
  * La classe `ClientDepth` permette all'utente di scegliere la profondità per l'algoritmo
- * di clustering e di selezionare il tipo di distanza (come "single-link") tramite una
+ * di clustering e di selezionare il tipo di distanza (single-link, average-link, complete-link,
+ * Ward o centroid-link) tramite una
  * combobox e un gruppo di opzioni radio. Le informazioni vengono inviate al server
  * e viene visualizzato un messaggio di errore se qualcosa va storto.
  * </p>
@@ -71,10 +72,12 @@ public class ClientDepth {
                 out.writeObject(selectedDepth); // Invia la profondità scelta
 
                 // Invia la modalità di distanza selezionata
-                if ("single-link".equals(selectedDistance)) {
-                    out.writeObject(1); // 1 per single-link
-                } else {
-                    out.writeObject(0); // 0 per altra modalità
+                switch (selectedDistance) {
+                    case "single-link" -> out.writeObject(1); // 1 per single-link
+                    case "complete-link" -> out.writeObject(2); // 2 per complete-link
+                    case "ward" -> out.writeObject(3); // 3 per Ward
+                    case "centroid-link" -> out.writeObject(4); // 4 per centroid-link
+                    default -> out.writeObject(0); // 0 per average-link
                 }
 
                 // Ricevi la risposta dal server
@@ -1,5 +1,5 @@
 @echo off
 
-start javaw --module-path "javafx-sdk-21.0.5\lib" --add-modules javafx.controls,javafx.fxml -jar .\Server_GUI.jar
+start javaw --module-path "javafx-sdk-21.0.5\lib" --add-modules javafx.controls,javafx.fxml,jdk.incubator.vector -jar .\Server_GUI.jar
 
 exit
@@ -0,0 +1,160 @@
+package code.clustering;
+
+import code.data.Data;
+import code.data.KDTree;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * classe BoruvkaSingleLinkEngine
+ * calcola il dendrogramma per la distanza single-link dall'albero ricoprente minimo degli esempi,
+ * costruito con l'algoritmo di Borůvka: ad ogni passo ogni componente si unisce a quella contenente
+ * l'esempio esterno più vicino, trovato con un KDTree che scarta i nodi interni alla componente.
+ * Gli archi sono confrontati per (distanza, esempio minore, esempio maggiore), quindi l'albero è unico.
+ * Sui dataset con pochi attributi ogni passo costa circa O(n log n) e i passi sono O(log n).
+ * Per riprodurre esattamente l'ordine di ClusterSet.mergeClosestClusters, per ogni gruppo di archi
+ * dell'albero alla stessa distanza vengono cercate con il KDTree tutte le coppie di esempi a quella
+ * distanza tra le componenti coinvolte
+ *
+ */
+class BoruvkaSingleLinkEngine {
+
+	/**
+	 * metodo mine
+	 * inserisce nel dendrogramma le fusioni dei livelli successivi al livello 0
+	 *
+	 * @param dendrogram dendrogramma inizializzato con il numero di esempi di data
+	 * @param data dataset su cui calcolare il clustering
+	 */
+	void mine(Dendrogram dendrogram, Data data) throws InvalidClustersNumberException {
+		int n = data.getNumberOfExample();
+		KDTree tree = new KDTree(data);
+		MergeList treeEdges = spanningTree(tree, data);
+		treeEdges.sortByHeight();
+
+		int needed = dendrogram.getDepth() - 1;
+		if (treeEdges.getSize() < needed)
+			throw new InvalidClustersNumberException("Non ci sono abbastanza cluster da fondere");
+
+		int count = treeEdges.getSize();
+		int[] first = new int[count];
+		int[] second = new int[count];
+		for (int e = 0; e < count; e++) {
+			first[e] = treeEdges.getFirst(e);
+			second[e] = treeEdges.getSecond(e);
+		}
+
+		UnionFind sets = new UnionFind(n);
+		int[] minOf = new int[n];
+		for (int i = 0; i < n; i++)
+			minOf[i] = i;
+
+		int merges = 0;
+		for (int from = 0; from < count && merges < needed; ) {
+			double h = treeEdges.getHeight(from);
+			int to = from + 1;
+			while (to < count && treeEdges.getHeight(to) == h)
+				to++;
+
+			if (to - from == 1) {
+				merges += MergeList.mergeGroup(dendrogram, sets, minOf, first, second, from, to, h, needed - merges);
+			} else {
+				int[][] ties = ties(tree, data, sets, first, second, from, to, h);
+				merges += MergeList.mergeGroup(dendrogram, sets, minOf, ties[0], ties[1], 0, ties[0].length, h, needed - merges);
+			}
+			from = to;
+		}
+	}
+
+	/**
+	 * metodo spanningTree
+	 * restituisce gli archi dell'albero ricoprente minimo degli esempi, nell'ordine in cui sono trovati
+	 */
+	private static MergeList spanningTree(KDTree tree, Data data) {
+		int n = data.getNumberOfExample();
+		MergeList edges = new MergeList(Math.max(n - 1, 0));
+		UnionFind components = new UnionFind(n);
+		int[] labels = new int[n];
+		double[] bestDistance = new double[n];
+		int[] bestFirst = new int[n];
+		int[] bestSecond = new int[n];
+
+		int remaining = n;
+		while (remaining > 1) {
+			for (int i = 0; i < n; i++)
+				labels[i] = components.find(i);
+			int[] nodeLabels = tree.labelNodes(labels);
+			Arrays.fill(bestDistance, Double.POSITIVE_INFINITY);
+			Arrays.fill(bestFirst, -1);
+
+			// arco uscente minimo di ogni componente
+			for (int p = 0; p < n; p++) {
+				int c = labels[p];
+				int q = tree.nearestWithDifferentLabel(p, labels, nodeLabels, bestDistance[c]);
+				if (q < 0)
+					continue;
+				double d = data.distance(p, q);
+				int lo = Math.min(p, q);
+				int hi = Math.max(p, q);
+				if (bestFirst[c] < 0 || d < bestDistance[c]
+						|| (d == bestDistance[c] && (lo < bestFirst[c] || (lo == bestFirst[c] && hi < bestSecond[c])))) {
+					bestDistance[c] = d;
+					bestFirst[c] = lo;
+					bestSecond[c] = hi;
+				}
+			}
+
+			for (int c = 0; c < n; c++) {
+				if (bestFirst[c] >= 0 && components.union(bestFirst[c], bestSecond[c]) >= 0) {
+					edges.add(bestFirst[c], bestSecond[c], bestDistance[c]);
+					remaining--;
+				}
+			}
+		}
+		return edges;
+	}
+
+	/**
+	 * metodo ties
+	 * restituisce, una per coppia di componenti, le coppie di esempi a distanza h tra le componenti
+	 * toccate dagli archi dell'albero in posizione da from a to, tutti a distanza h
+	 *
+	 * @return due array con il primo e il secondo esempio di ogni coppia
+	 */
+	private static int[][] ties(KDTree tree, Data data, UnionFind sets, int[] first, int[] second, int from, int to, double h) {
+		int n = data.getNumberOfExample();
+		boolean[] touched = new boolean[n];
+		for (int e = from; e < to; e++) {
+			touched[sets.find(first[e])] = true;
+			touched[sets.find(second[e])] = true;
+		}
+		int[] labels = new int[n];
+		for (int i = 0; i < n; i++)
+			labels[i] = sets.find(i);
+
+		Set<Long> seen = new HashSet<>();
+		int[][] pairs = {new int[to - from], new int[to - from]};
+		int[] size = {0};
+		for (int p = 0; p < n; p++) {
+			if (!touched[labels[p]])
+				continue;
+			int query = p;
+			tree.range(p, h, q -> {
+				if (q > query && labels[q] != labels[query] && data.distance(query, q) == h
+						// la moltiplicazione per una costante dispari è biunivoca e distribuisce meglio l'hash di Long
+						&& seen.add(MergeList.pairKey(labels[query], labels[q]) * 0x9E3779B97F4A7C15L)) {
+					if (size[0] == pairs[0].length) {
+						pairs[0] = Arrays.copyOf(pairs[0], size[0] * 2);
+						pairs[1] = Arrays.copyOf(pairs[1], size[0] * 2);
+					}
+					pairs[0][size[0]] = query;
+					pairs[1][size[0]] = q;
+					size[0]++;
+				}
+			});
+		}
+		return new int[][] {Arrays.copyOf(pairs[0], size[0]), Arrays.copyOf(pairs[1], size[0])};
+	}
+}
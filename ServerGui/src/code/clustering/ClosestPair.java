@@ -0,0 +1,51 @@
+package code.clustering;
+
+/**
+ * classe ClosestPair
+ * modella la coppia di cluster più vicini trovata in un insieme di cluster:
+ * le posizioni dei due cluster nel ClusterSet e la loro distanza
+ *
+ */
+class ClosestPair {
+	/** posizione del primo cluster */
+	final int first;
+	/** posizione del secondo cluster, maggiore di first */
+	final int second;
+	/** distanza tra i due cluster */
+	final double distance;
+
+	/**
+	 * Costruttore
+	 *
+	 * @param first posizione del primo cluster
+	 * @param second posizione del secondo cluster
+	 * @param distance distanza tra i due cluster
+	 */
+	ClosestPair(int first, int second, double distance) {
+		this.first = first;
+		this.second = second;
+		this.distance = distance;
+	}
+
+	/**
+	 * metodo min
+	 * restituisce la coppia più vicina tra a e b; a parità di distanza vince la coppia
+	 * che precede nell'ordine di scansione (prima per first, poi per second),
+	 * così il risultato non dipende da come la ricerca è stata suddivisa
+	 *
+	 * @param a prima coppia, può essere null
+	 * @param b seconda coppia, può essere null
+	 * @return la coppia più vicina
+	 */
+	static ClosestPair min(ClosestPair a, ClosestPair b) {
+		if (a == null)
+			return b;
+		if (b == null)
+			return a;
+		if (a.distance != b.distance)
+			return a.distance < b.distance ? a : b;
+		if (a.first != b.first)
+			return a.first < b.first ? a : b;
+		return a.second <= b.second ? a : b;
+	}
+}
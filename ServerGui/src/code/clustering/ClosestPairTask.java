@@ -0,0 +1,123 @@
+package code.clustering;
+
+import code.data.Data;
+import code.data.InvalidSizeException;
+import code.distance.ClusterDistance;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * classe ClosestPairTask
+ * cerca in parallelo la coppia di cluster più vicini di un ClusterSet:
+ * il ciclo esterno della ricerca è diviso in blocchi di righe con circa lo stesso
+ * numero di coppie, il task si divide ricorsivamente finché non resta un solo blocco
+ * e i risultati parziali sono ridotti con ClosestPair.min
+ *
+ */
+@SuppressWarnings("serial")
+class ClosestPairTask extends RecursiveTask<ClosestPair> {
+	private final ClusterSet clusters;
+	private final ClusterDistance distance;
+	private final Data data;
+	private final MiningMetrics metrics;
+	/** bounds[b] è la prima riga del blocco b, bounds[b+1] la prima riga del blocco successivo */
+	private final int[] bounds;
+	private final int fromBlock;
+	private final int toBlock;
+
+	/**
+	 * Costruttore
+	 *
+	 * @param clusters insieme di cluster in cui cercare
+	 * @param distance distanza tra cluster
+	 * @param data dataset
+	 * @param metrics contatori delle coppie valutate e scartate
+	 * @param bounds righe di inizio dei blocchi
+	 * @param fromBlock primo blocco assegnato al task
+	 * @param toBlock blocco successivo all'ultimo assegnato al task
+	 */
+	private ClosestPairTask(ClusterSet clusters, ClusterDistance distance, Data data, MiningMetrics metrics, int[] bounds, int fromBlock, int toBlock) {
+		this.clusters = clusters;
+		this.distance = distance;
+		this.data = data;
+		this.metrics = metrics;
+		this.bounds = bounds;
+		this.fromBlock = fromBlock;
+		this.toBlock = toBlock;
+	}
+
+	/**
+	 * metodo search
+	 * restituisce la coppia di cluster più vicini usando al più parallelism thread del pool condiviso;
+	 * il risultato coincide con quello della ricerca sequenziale
+	 *
+	 * @param clusters insieme di cluster in cui cercare
+	 * @param distance distanza tra cluster
+	 * @param data dataset
+	 * @param parallelism numero massimo di blocchi elaborati in parallelo
+	 * @param metrics contatori a cui aggiungere le coppie valutate e scartate
+	 * @return coppia di cluster più vicini
+	 */
+	static ClosestPair search(ClusterSet clusters, ClusterDistance distance, Data data, int parallelism, MiningMetrics metrics) throws InvalidSizeException {
+		int k = clusters.getSize();
+		long pairs = (long) k * (k - 1) / 2;
+		int blocks = (int) Math.max(1, Math.min(parallelism, pairs));
+
+		// righe bilanciate per numero di coppie: la riga i contiene k-1-i coppie
+		int[] bounds = new int[blocks + 1];
+		long done = 0;
+		int row = 0;
+		for (int b = 1; b < blocks; b++) {
+			long target = pairs * b / blocks;
+			while (row < k - 1 && done < target)
+				done += k - 1 - row++;
+			bounds[b] = row;
+		}
+		bounds[blocks] = k;
+
+		try {
+			return MiningPool.get().invoke(new ClosestPairTask(clusters, distance, data, metrics, bounds, 0, blocks));
+		} catch (SearchException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * metodo compute
+	 * divide i blocchi a metà finché non ne resta uno, quindi lo scandisce
+	 *
+	 * @return coppia più vicina tra quelle dei blocchi assegnati
+	 */
+	@Override
+	protected ClosestPair compute() {
+		if (toBlock - fromBlock == 1) {
+			try {
+				return clusters.closestPair(distance, data, bounds[fromBlock], bounds[toBlock], metrics);
+			} catch (InvalidSizeException e) {
+				throw new SearchException(e);
+			}
+		}
+
+		int mid = (fromBlock + toBlock) >>> 1;
+		ClosestPairTask left = new ClosestPairTask(clusters, distance, data, metrics, bounds, fromBlock, mid);
+		left.fork();
+		ClosestPair right = new ClosestPairTask(clusters, distance, data, metrics, bounds, mid, toBlock).compute();
+		return ClosestPair.min(left.join(), right);
+	}
+
+	/**
+	 * classe SearchException
+	 * trasporta fuori dal pool l'eccezione controllata sollevata dal calcolo della distanza
+	 */
+	@SuppressWarnings("serial")
+	private static class SearchException extends RuntimeException {
+		SearchException(InvalidSizeException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized InvalidSizeException getCause() {
+			return (InvalidSizeException) super.getCause();
+		}
+	}
+}
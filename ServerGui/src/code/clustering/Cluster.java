@@ -1,31 +1,66 @@
 package code.clustering;
 
+import code.data.ClusterStatistics;
 import code.data.Data;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.NoSuchElementException;
 
 
 /**
  * classe Cluster
  * modella un cluster come la collezione delle posizioni occupate
  * dagli esempi raggruppati nel Cluster nel vettore data dell’oggetto
- * che modella il dataset su cui il clustering è calcolato(istanza di Data)
+ * che modella il dataset su cui il clustering è calcolato(istanza di Data).
+ * Le posizioni sono memorizzate in un array ordinato di int: la fusione di due cluster
+ * è una fusione lineare di array e la scansione con get non alloca oggetti.
+ * Il cluster conserva le statistiche sufficienti dei suoi esempi (dimensione, somma vettoriale,
+ * somma dei quadrati delle norme), calcolate alla prima richiesta direttamente sugli esempi: dipendono
+ * solo dagli esempi del cluster e non dall'ordine delle fusioni, così ogni modalità di calcolo
+ * ottiene le stesse distanze tra gli stessi cluster
  *
  */
 public class Cluster implements Iterable<Integer>, Cloneable, Serializable {
-	private Set<Integer> clusteredData =new TreeSet<>();
+	private int[] clusteredData = new int[0];
+	private transient ClusterStatistics statistics; // statistiche degli esempi, null se non ancora calcolate
+	private transient Data statisticsData; // dataset su cui sono state calcolate le statistiche
+
+	/**
+	 * Costruttore
+	 * crea un cluster vuoto
+	 */
+	Cluster() {
+	}
+
+	/**
+	 * Costruttore
+	 * crea un cluster con gli esempi indicati
+	 *
+	 * @param sortedData indici degli esempi, in ordine crescente e senza ripetizioni
+	 */
+	Cluster(int[] sortedData) {
+		clusteredData = sortedData;
+	}
 
 	/**
 	 * metodo addData
-	 * aggiunge l'indice di posizione id al cluster
+	 * aggiunge l'indice di posizione id al cluster, se non è già presente
 	 *
 	 * @param id indice da aggiungere al cluster
 	 */
 	void addData(int id){
-        clusteredData.add(id);
+		int pos = Arrays.binarySearch(clusteredData, id);
+		if (pos >= 0)
+			return;
+		pos = -pos - 1;
+		int[] newData = new int[clusteredData.length + 1];
+		System.arraycopy(clusteredData, 0, newData, 0, pos);
+		newData[pos] = id;
+		System.arraycopy(clusteredData, pos, newData, pos + 1, clusteredData.length - pos);
+		clusteredData = newData;
+		statistics = null;
 	}
 
 	/**
@@ -35,17 +70,60 @@ public class Cluster implements Iterable<Integer>, Cloneable, Serializable {
 	 * @return dimensione del cluster
 	 */
 	public int getSize() {
-		return clusteredData.size();
+		return clusteredData.length;
+	}
+
+	/**
+	 * metodo get
+	 * restituisce l'indice dell'esempio in posizione index, con gli indici in ordine crescente;
+	 * permette di scorrere il cluster senza l'iteratore e senza boxing
+	 *
+	 * @param index posizione nel cluster, tra 0 e getSize()-1
+	 * @return indice dell'esempio nel dataset
+	 */
+	public int get(int index) {
+		return clusteredData[index];
+	}
+
+	/**
+	 * metodo getStatistics
+	 * restituisce le statistiche sufficienti degli esempi del cluster nel dataset data;
+	 * sono calcolate alla prima richiesta, in tempo proporzionale alla dimensione del cluster
+	 *
+	 * @param data dataset su cui il clustering è calcolato
+	 * @return statistiche degli esempi del cluster
+	 */
+	public ClusterStatistics getStatistics(Data data) {
+		ClusterStatistics s = statistics;
+		if (s == null || statisticsData != data) {
+			s = ClusterStatistics.of(data, clusteredData);
+			statisticsData = data;
+			statistics = s;
+		}
+		return s;
 	}
 
 	/**
 	 * metodo iterator
-	 * restituisce un iteratore per scorrere gli elementi del cluster
+	 * restituisce un iteratore per scorrere gli elementi del cluster;
+	 * è mantenuto per compatibilità, il codice di calcolo usa getSize e get
 	 *
-	 * @return clusteredData.iterator() iteratore per scorrere gli elementi del cluster
+	 * @return iteratore per scorrere gli elementi del cluster
 	 */
 	public Iterator<Integer> iterator() {
-		return clusteredData.iterator();
+		return new Iterator<Integer>() {
+			private int next = 0;
+
+			public boolean hasNext() {
+				return next < clusteredData.length;
+			}
+
+			public Integer next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return clusteredData[next++];
+			}
+		};
 	}
 
 	/**
@@ -59,7 +137,7 @@ public class Cluster implements Iterable<Integer>, Cloneable, Serializable {
 		Cluster clone = null;
 		try {
 			clone = (Cluster) super.clone();
-			clone.clusteredData = (Set<Integer>) ((TreeSet<Integer>) this.clusteredData).clone();
+			clone.clusteredData = this.clusteredData.clone();
 		} catch (CloneNotSupportedException e) {
 			throw new CloneNotSupportedException("Errore nella clonazione!");
 		}
@@ -75,18 +153,27 @@ public class Cluster implements Iterable<Integer>, Cloneable, Serializable {
 	 * @return newC cluster che è la fusione del cluster corrente e del cluster c
 	 */
 	Cluster mergeCluster(Cluster c) {
-		Cluster newC = new Cluster();
-		Iterator<Integer> it1 = this.iterator();
-		Iterator<Integer> it2 = c.iterator();
-
-		while (it1.hasNext()) {
-			newC.addData(it1.next());
-		}
-		while (it2.hasNext()) {
-			newC.addData(it2.next());
+		int[] a = this.clusteredData;
+		int[] b = c.clusteredData;
+		int[] merged = new int[a.length + b.length];
+		int i = 0, j = 0, k = 0;
+
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j])
+				merged[k++] = a[i++];
+			else if (a[i] > b[j])
+				merged[k++] = b[j++];
+			else {
+				merged[k++] = a[i++];
+				j++;
+			}
 		}
+		while (i < a.length)
+			merged[k++] = a[i++];
+		while (j < b.length)
+			merged[k++] = b[j++];
 
-		return newC;
+		return new Cluster(k < merged.length ? Arrays.copyOf(merged, k) : merged);
 	}
 
 
@@ -98,13 +185,12 @@ public class Cluster implements Iterable<Integer>, Cloneable, Serializable {
 	 */
 	public String toString() {
 		StringBuilder str = new StringBuilder();
-		Iterator<Integer> it = this.iterator();
-
-		if (it.hasNext())
-			str.append(it.next());
 
-		while (it.hasNext())
-			str.append(",").append(it.next());
+		for (int i = 0; i < clusteredData.length; i++) {
+			if (i > 0)
+				str.append(",");
+			str.append(clusteredData[i]);
+		}
 
 		return str.toString();
 	}
@@ -119,10 +205,9 @@ public class Cluster implements Iterable<Integer>, Cloneable, Serializable {
 
 	public String toString(Data data) {
 		StringBuilder str = new StringBuilder();
-		Iterator<Integer> it = clusteredData.iterator();
 
-		while (it.hasNext())
-			str.append("<[").append(data.getExample(it.next())).append("]>");
+		for (int id : clusteredData)
+			str.append("<[").append(data.getExample(id)).append("]>");
 
 		return str.toString();
 	}
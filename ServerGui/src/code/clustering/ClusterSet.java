@@ -25,6 +25,18 @@ class ClusterSet implements Serializable {
 		C=new Cluster[k];
 	}
 
+	/**
+	 * Costruttore
+	 * crea un'istanza di classe ClusterSet contenente i cluster indicati, nell'ordine dato;
+	 * i cluster devono essere distinti
+	 *
+	 * @param clusters cluster dell'insieme
+	 */
+	ClusterSet(Cluster[] clusters){
+		C=clusters;
+		lastClusterIndex=clusters.length;
+	}
+
 	/**
 	 * metodo add
 	 * aggiunge il cluster c all'insieme di cluster
@@ -51,6 +63,16 @@ class ClusterSet implements Serializable {
 		return C[i];
 	}
 
+	/**
+	 * metodo getSize
+	 * restituisce il numero di cluster nell'insieme
+	 *
+	 * @return numero di cluster nell'insieme
+	 */
+	int getSize(){
+		return lastClusterIndex;
+	}
+
 	/**
 	 * metodo mergeClosestClusters
 	 * restituisce un nuovo insieme di cluster che è la fusione dei due cluster più vicini
@@ -60,45 +82,115 @@ class ClusterSet implements Serializable {
 	 * @return insieme di cluster con i due cluster più vicini fusi
 	 */
 	ClusterSet mergeClosestClusters(ClusterDistance distance, Data data) throws InvalidSizeException, InvalidClustersNumberException {
+		return mergeClosestClusters(distance, data, 1);
+	}
+
+	/**
+	 * metodo mergeClosestClusters
+	 * come mergeClosestClusters(distance, data), ma con parallelism maggiore di 1
+	 * la ricerca della coppia più vicina è suddivisa tra i thread del pool condiviso;
+	 * a parità di distanza viene scelta la stessa coppia della ricerca sequenziale
+	 *
+	 * @param distance interfaccia di calcolo della distanza tra due cluster
+	 * @param data dataset
+	 * @param parallelism numero massimo di thread da impiegare nella ricerca
+	 * @return insieme di cluster con i due cluster più vicini fusi
+	 */
+	ClusterSet mergeClosestClusters(ClusterDistance distance, Data data, int parallelism) throws InvalidSizeException, InvalidClustersNumberException {
+		ClosestPair pair = findClosestPair(distance, data, parallelism, new MiningMetrics());
+		return mergeClusters(get(pair.first), get(pair.second));
+	}
+
+	/**
+	 * metodo findClosestPair
+	 * restituisce la coppia dei due cluster più vicini, con le loro posizioni nell'insieme;
+	 * con parallelism maggiore di 1 la ricerca è suddivisa tra i thread del pool condiviso
+	 *
+	 * @param distance interfaccia di calcolo della distanza tra due cluster
+	 * @param data dataset
+	 * @param parallelism numero massimo di thread da impiegare nella ricerca
+	 * @param metrics contatori a cui aggiungere le coppie valutate e scartate
+	 * @return coppia dei due cluster più vicini
+	 */
+	ClosestPair findClosestPair(ClusterDistance distance, Data data, int parallelism, MiningMetrics metrics) throws InvalidSizeException, InvalidClustersNumberException {
 		if ( lastClusterIndex <= 1)
 			throw new InvalidClustersNumberException("Non ci sono abbastanza cluster da fondere");
 
+		return parallelism > 1
+				? ClosestPairTask.search(this, distance, data, parallelism, metrics)
+				: closestPair(distance, data, 0, this.C.length, metrics);
+	}
+
+	/**
+	 * metodo closestPair
+	 * restituisce la coppia di cluster più vicini tra quelle il cui primo cluster
+	 * è in posizione compresa tra from (incluso) e to (escluso); le coppie il cui limite inferiore
+	 * (ClusterDistance.lowerBound) non è minore della distanza minima corrente sono scartate,
+	 * perché a parità di distanza resta comunque la coppia trovata per prima
+	 *
+	 * @param distance interfaccia di calcolo della distanza tra due cluster
+	 * @param data dataset
+	 * @param from prima riga da esaminare
+	 * @param to riga successiva all'ultima da esaminare
+	 * @param metrics contatori a cui aggiungere le coppie valutate e scartate
+	 * @return coppia più vicina, null se le righe non contengono coppie
+	 */
+	ClosestPair closestPair(ClusterDistance distance, Data data, int from, int to, MiningMetrics metrics) throws InvalidSizeException {
 		double minD = Double.MAX_VALUE;
-		Cluster cluster1 = null;
-		Cluster cluster2 = null;
+		int cluster1 = -1;
+		int cluster2 = -1;
+		long evaluated = 0;
+		long pruned = 0;
 
-		for (int i = 0; i < this.C.length; i++) {
+		for (int i = from; i < to; i++) {
 			Cluster c1 = get(i);
 			for(int j = i+1; j<this.C.length; j++){
 				Cluster c2 = get(j);
-				double d = 0;
-				try {
-					d = distance.distance(c1, c2, data);
-					if (d < minD) {
-						minD = d;
-						cluster1 = c1;
-						cluster2 = c2;
-					}
-				} catch (InvalidSizeException e) {
-					j = this.C.length;
-					i = this.C.length;
-					throw e;
+				if (distance.lowerBound(c1, c2, data) >= minD) {
+					pruned++;
+					continue;
+				}
+				double d = distance.distance(c1, c2, data, minD);
+				evaluated++;
+				if (d < minD) {
+					minD = d;
+					cluster1 = i;
+					cluster2 = j;
 				}
 			}
 		}
+
+		metrics.add(evaluated, pruned);
+		return cluster1 < 0 ? null : new ClosestPair(cluster1, cluster2, minD);
+	}
+
+	/**
+	 * metodo mergeClusters
+	 * restituisce un nuovo insieme di cluster in cui cluster1 e cluster2 sono fusi;
+	 * il cluster fuso occupa la posizione del primo dei due nell'insieme
+	 * e gli altri cluster mantengono il loro ordine
+	 *
+	 * @param cluster1 primo cluster da fondere
+	 * @param cluster2 secondo cluster da fondere
+	 * @return insieme di cluster con cluster1 e cluster2 fusi
+	 */
+	ClusterSet mergeClusters(Cluster cluster1, Cluster cluster2) {
 		Cluster mergedCluster = cluster1.mergeCluster(cluster2);
-		ClusterSet finalClusterSet = new ClusterSet(this.C.length-1);
+		Cluster[] clusters = new Cluster[this.C.length-1];
+		int k = 0;
 		for(int i=0; i<this.C.length; i++){
 			Cluster c = get(i);
-			if(c!=cluster1) {
-				if (c != cluster2)
-					finalClusterSet.add(c);
+			if(c==cluster1 || c==cluster2) {
+				if (mergedCluster != null) {
+					clusters[k++] = mergedCluster;
+					mergedCluster = null;
+				}
 			}
 			else
-				finalClusterSet.add(mergedCluster);
+				clusters[k++] = c;
 		}
 
-		return finalClusterSet;
+		return new ClusterSet(clusters);
 	}
 
 	/**
@@ -108,13 +200,13 @@ class ClusterSet implements Serializable {
 	 * @return str stringa contenente gli indici degli esempi raggruppati nei cluster
 	 */
 	public String toString(){
-		String str="";
+		StringBuilder str=new StringBuilder();
 		for(int i=0;i<C.length;i++){
 			if (C[i]!=null){
-				str+="cluster"+i+":"+C[i]+"\n";
+				str.append("cluster").append(i).append(":").append(C[i]).append("\n");
 			}
 		}
-		return str;
+		return str.toString();
 
 	}
 
@@ -126,13 +218,13 @@ class ClusterSet implements Serializable {
 	 * @return str stringa contenente gli esempi raggruppati nei cluster
 	 */
 	public String toString(Data data){
-		String str="";
+		StringBuilder str=new StringBuilder();
 		for(int i=0;i<C.length;i++){
 			if (C[i]!=null){
-				str+="cluster"+i+":"+C[i].toString(data)+"\n";
+				str.append("cluster").append(i).append(":").append(C[i].toString(data)).append("\n");
 			}
 		}
-		return str;
+		return str.toString();
 
 	}
 }
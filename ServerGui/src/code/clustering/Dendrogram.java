@@ -3,14 +3,29 @@ package code.clustering;
 import code.data.Data;
 
 import java.io.Serializable;
+import java.util.Arrays;
+
 /**
  * classe Dendrogram
- * Modella un dendrogramma
+ * Modella un dendrogramma come la sequenza delle fusioni che portano da un livello al successivo:
+ * per ogni fusione sono memorizzati, in array di tipi primitivi, i due cluster fusi
+ * (identificati dal loro esempio di indice minimo), la distanza e la dimensione del cluster ottenuto.
+ * Il ClusterSet di un livello è ricostruito solo quando viene richiesto.
+ * Il livello 0 contiene di norma un cluster per esempio, ma può essere una partizione iniziale
+ * degli esempi (ad esempio i micro-cluster di un CFTree)
  *
  * @author Team MAP Que Nada
  */
 class Dendrogram implements Serializable {
-    private ClusterSet[] tree; //modella il dendrogramma
+    private final int depth; //profondità del dendrogramma
+    private int numberOfExamples; //numero di esempi del livello 0
+    private int[] partition; //esempio minimo del cluster di ogni esempio al livello 0, null se ogni esempio è un cluster
+    private int initialClusters; //numero di cluster del livello 0
+    private int[] left; //esempio minimo del primo cluster fuso
+    private int[] right; //esempio minimo del secondo cluster fuso
+    private double[] height; //distanza tra i due cluster fusi
+    private int[] size; //dimensione del cluster ottenuto
+    private int mergeCount; //numero di fusioni memorizzate
 
     /**
      * Costruttore
@@ -20,26 +35,142 @@ class Dendrogram implements Serializable {
         if (depth <= 0) {
             throw new InvalidDepthException("Profondità non valida!\n");
         }
-        tree=new ClusterSet[depth];
+        this.depth = depth;
+        init(0);
     }
 
     /**
-     * metodo getClusterSet
-     * Inserisce il cluster set c al livello level di tree
-     * @param level livello del dendrogramma in cui inserire il cluster set
+     * metodo init
+     * Svuota il dendrogramma e imposta il numero di esempi del livello 0,
+     * in cui ogni esempio forma un cluster
+     * @param numberOfExamples numero di esempi del dataset
      */
-    void setClusterSet(ClusterSet c, int level){
-        tree[level]=c;
+    void init(int numberOfExamples) {
+        init(numberOfExamples, null);
+    }
+
+    /**
+     * metodo init
+     * Svuota il dendrogramma e imposta il livello 0 alla partizione indicata
+     * @param numberOfExamples numero di esempi del dataset
+     * @param partition esempio minimo del cluster di ogni esempio, null se ogni esempio forma un cluster
+     */
+    void init(int numberOfExamples, int[] partition) {
+        this.numberOfExamples = numberOfExamples;
+        this.partition = partition;
+        initialClusters = numberOfExamples;
+        if (partition != null) {
+            initialClusters = 0;
+            for (int i = 0; i < numberOfExamples; i++)
+                if (partition[i] == i)
+                    initialClusters++;
+        }
+        left = new int[depth - 1];
+        right = new int[depth - 1];
+        height = new double[depth - 1];
+        size = new int[depth - 1];
+        mergeCount = 0;
+    }
+
+    /**
+     * metodo addMerge
+     * Aggiunge la fusione che produce il livello successivo all'ultimo inserito
+     * @param first esempio di indice minimo del primo cluster fuso
+     * @param second esempio di indice minimo del secondo cluster fuso
+     * @param distance distanza tra i due cluster
+     * @param mergedSize dimensione del cluster ottenuto
+     */
+    void addMerge(int first, int second, double distance, int mergedSize) {
+        left[mergeCount] = first;
+        right[mergeCount] = second;
+        height[mergeCount] = distance;
+        size[mergeCount] = mergedSize;
+        mergeCount++;
     }
 
     /**
      * metodo getClusterSet
-     * Restituisce il cluster set al livello level di tree
+     * Restituisce il cluster set al livello level, ricostruito applicando le prime level fusioni;
+     * i cluster sono ordinati per esempio minimo, come nei ClusterSet prodotti da mergeClosestClusters
      * @param level livello del dendrogramma da restituire
-     * @return il cluster set al livello level di tree
+     * @return il cluster set al livello level, null se il livello non è ancora stato calcolato
      */
     ClusterSet getClusterSet(int level) {
-        return tree[level];
+        if (level > mergeCount || numberOfExamples == 0)
+            return null;
+
+        UnionFind sets = new UnionFind(numberOfExamples);
+        if (partition != null)
+            for (int i = 0; i < numberOfExamples; i++)
+                sets.union(partition[i], i);
+        for (int m = 0; m < level; m++)
+            sets.union(left[m], right[m]);
+
+        // la prima volta che un rappresentante compare scorrendo gli esempi, si è sul suo esempio minimo
+        int[] slot = new int[numberOfExamples];
+        int[] counts = new int[initialClusters - level];
+        int clusters = 0;
+        Arrays.fill(slot, -1);
+        for (int i = 0; i < numberOfExamples; i++) {
+            int root = sets.find(i);
+            if (slot[root] < 0)
+                slot[root] = clusters++;
+            counts[slot[root]]++;
+        }
+
+        int[][] members = new int[clusters][];
+        for (int c = 0; c < clusters; c++)
+            members[c] = new int[counts[c]];
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < numberOfExamples; i++) {
+            int c = slot[sets.find(i)];
+            members[c][counts[c]++] = i;
+        }
+
+        Cluster[] set = new Cluster[clusters];
+        for (int c = 0; c < clusters; c++)
+            set[c] = new Cluster(members[c]);
+        return new ClusterSet(set);
+    }
+
+    /**
+     * metodo getFirst
+     * Restituisce l'esempio minimo del primo cluster fuso per ottenere il livello level
+     * @param level livello del dendrogramma, maggiore di 0
+     * @return l'esempio minimo del primo cluster fuso
+     */
+    int getFirst(int level) {
+        return left[level - 1];
+    }
+
+    /**
+     * metodo getSecond
+     * Restituisce l'esempio minimo del secondo cluster fuso per ottenere il livello level
+     * @param level livello del dendrogramma, maggiore di 0
+     * @return l'esempio minimo del secondo cluster fuso
+     */
+    int getSecond(int level) {
+        return right[level - 1];
+    }
+
+    /**
+     * metodo getHeight
+     * Restituisce la distanza tra i due cluster fusi per ottenere il livello level
+     * @param level livello del dendrogramma, maggiore di 0
+     * @return la distanza della fusione che produce il livello
+     */
+    double getHeight(int level) {
+        return height[level - 1];
+    }
+
+    /**
+     * metodo getMergedSize
+     * Restituisce la dimensione del cluster ottenuto dalla fusione che produce il livello level
+     * @param level livello del dendrogramma, maggiore di 0
+     * @return la dimensione del cluster fuso
+     */
+    int getMergedSize(int level) {
+        return size[level - 1];
     }
 
     /**
@@ -48,7 +179,7 @@ class Dendrogram implements Serializable {
      * @return la profondità del dendrogramma
      */
     int getDepth() {
-        return tree.length;
+        return depth;
     }
 
     /**
@@ -57,10 +188,10 @@ class Dendrogram implements Serializable {
      * @return una rappresentazione testuale del dendrogramma
      */
     public String toString(){
-        String v="";
-        for (int i=0;i<tree.length;i++)
-            v+=("level"+i+":\n"+tree[i]+ "\n");
-        return v;
+        StringBuilder v = new StringBuilder();
+        for (int i=0;i<depth;i++)
+            v.append("level").append(i).append(":\n").append(getClusterSet(i)).append("\n");
+        return v.toString();
     }
 
     /**
@@ -70,9 +201,9 @@ class Dendrogram implements Serializable {
      * @return una rappresentazione testuale del dendrogramma
      */
     public String toString(Data data) throws InvalidDepthException {
-        String v="";
-        for (int i=0;i<tree.length;i++)
-            v+=("level"+i+":\n"+tree[i].toString(data)+"\n");
-        return v;
+        StringBuilder v = new StringBuilder();
+        for (int i=0;i<depth;i++)
+            v.append("level").append(i).append(":\n").append(getClusterSet(i).toString(data)).append("\n");
+        return v.toString();
     }
 }
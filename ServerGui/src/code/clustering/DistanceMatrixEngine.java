@@ -0,0 +1,222 @@
+package code.clustering;
+
+import code.data.Data;
+import code.data.DistanceMatrix;
+import code.data.InvalidSizeException;
+import code.distance.LanceWilliamsDistance;
+
+import java.util.Arrays;
+
+/**
+ * classe DistanceMatrixEngine
+ * calcola il dendrogramma mantenendo la matrice delle distanze tra cluster:
+ * le distanze tra gli esempi sono calcolate una sola volta e, dopo ogni fusione,
+ * viene aggiornata solo la riga del cluster fuso con la formula di Lance-Williams.
+ * A parità di distanza vince la prima coppia nell'ordine dei cluster, come in ClusterSet.mergeClosestClusters.
+ * Quando l'aggiornamento non è esatto (Ward, centroid-link, average-link, o matrice in precisione singola)
+ * la matrice serve solo a trovare le coppie vicine alla distanza minima: la loro distanza è ricalcolata
+ * sui cluster con ClusterDistance.distance, come in PAIRWISE, e la coppia fusa e l'altezza del livello
+ * sono scelte sui valori ricalcolati
+ *
+ */
+class DistanceMatrixEngine {
+	/**
+	 * tolleranza relativa entro cui una coppia è considerata quasi alla distanza minima, per la matrice in
+	 * precisione doppia; copre con ampio margine gli arrotondamenti dell'aggiornamento e del calcolo diretto
+	 */
+	private static final double TOLERANCE = 1e-9;
+	/** come TOLERANCE, per la matrice in precisione singola */
+	private static final double SINGLE_PRECISION_TOLERANCE = 1e-5;
+
+	/** distanza tra cluster con formula di aggiornamento */
+	private final LanceWilliamsDistance distance;
+
+	/**
+	 * Costruttore
+	 *
+	 * @param distance distanza tra cluster da utilizzare
+	 */
+	DistanceMatrixEngine(LanceWilliamsDistance distance) {
+		this.distance = distance;
+	}
+
+	/**
+	 * metodo mine
+	 * inserisce nel dendrogramma le fusioni dei livelli successivi al livello 0
+	 *
+	 * @param dendrogram dendrogramma inizializzato con il numero di esempi di data
+	 * @param data dataset su cui calcolare il clustering
+	 * @param matrix matrice delle distanze tra gli esempi di data, calcolata per questo calcolo:
+	 * viene usata come copia di lavoro e le sue righe sono sovrascritte dalle distanze tra cluster
+	 */
+	void mine(Dendrogram dendrogram, Data data, DistanceMatrix matrix) throws InvalidSizeException, InvalidClustersNumberException {
+		int n = matrix.getNumberOfExamples();
+
+		// active[p] è l'esempio minimo del cluster in posizione p del ClusterSet corrente
+		int[] active = new int[n];
+		int[] sizes = new int[n];
+		for (int i = 0; i < n; i++) {
+			active[i] = i;
+			sizes[i] = 1;
+		}
+		int activeCount = n;
+
+		// con l'aggiornamento inesatto le coppie candidate sono ricalcolate sui cluster di ogni posizione
+		boolean exact = distance.isUpdateExact() && !matrix.isSinglePrecision();
+		Cluster[] clusters = exact ? null : new Cluster[n];
+		double relative = relativeTolerance(matrix);
+		double absolute = exact ? 0 : absoluteTolerance(matrix);
+		if (!exact) {
+			for (int i = 0; i < n; i++)
+				clusters[i] = new Cluster(new int[] {i});
+		}
+		Candidates candidates = new Candidates();
+
+		for (int level = 1; level < dendrogram.getDepth(); level++) {
+			if (activeCount <= 1)
+				throw new InvalidClustersNumberException("Non ci sono abbastanza cluster da fondere");
+
+			double minD = Double.MAX_VALUE;
+			double limit = Double.POSITIVE_INFINITY; // distanza oltre la quale una coppia non è candidata
+			int p1 = -1;
+			int p2 = -1;
+			candidates.clear();
+			for (int p = 0; p < activeCount; p++) {
+				int i = active[p];
+				for (int q = p + 1; q < activeCount; q++) {
+					double d = matrix.get(i, active[q]);
+					if (d < minD) {
+						minD = d;
+						limit = minD + minD * relative + absolute;
+						p1 = p;
+						p2 = q;
+					}
+					if (!exact && d <= limit)
+						candidates.add(p, q, d, limit);
+				}
+			}
+
+			if (!exact) {
+				// la prima coppia a distanza ricalcolata minima, nell'ordine dei cluster
+				minD = Double.MAX_VALUE;
+				for (int c = 0; c < candidates.size(); c++) {
+					if (candidates.value(c) > limit)
+						continue;
+					int p = candidates.first(c);
+					int q = candidates.second(c);
+					double d = distance.distance(clusters[active[p]], clusters[active[q]], data);
+					if (d < minD) {
+						minD = d;
+						p1 = p;
+						p2 = q;
+					}
+				}
+			}
+
+			int a = active[p1];
+			int b = active[p2];
+			for (int p = 0; p < activeCount; p++) {
+				int k = active[p];
+				if (k != a && k != b)
+					matrix.set(a, k, distance.update(matrix.get(a, k), matrix.get(b, k), minD, sizes[a], sizes[b], sizes[k]));
+			}
+			sizes[a] += sizes[b];
+			if (!exact) {
+				clusters[a] = clusters[a].mergeCluster(clusters[b]);
+				clusters[b] = null;
+			}
+			dendrogram.addMerge(a, b, minD, sizes[a]);
+
+			System.arraycopy(active, p2 + 1, active, p2, activeCount - p2 - 1);
+			activeCount--;
+		}
+	}
+
+	/**
+	 * metodo relativeTolerance
+	 * restituisce la tolleranza relativa entro cui due distanze della matrice sono considerate quasi uguali
+	 *
+	 * @param matrix matrice delle distanze
+	 * @return tolleranza relativa per la precisione della matrice
+	 */
+	static double relativeTolerance(DistanceMatrix matrix) {
+		return matrix.isSinglePrecision() ? SINGLE_PRECISION_TOLERANCE : TOLERANCE;
+	}
+
+	/**
+	 * metodo absoluteTolerance
+	 * restituisce la parte assoluta della tolleranza, proporzionale alle distanze degli esempi dalla media
+	 * del dataset, da cui dipendono gli arrotondamenti delle distanze calcolate dalle statistiche dei cluster;
+	 * quelle distanze non superano quattro volte la massima distanza dal primo esempio
+	 *
+	 * @param matrix matrice delle distanze tra gli esempi, non ancora aggiornata
+	 * @return tolleranza assoluta
+	 */
+	static double absoluteTolerance(DistanceMatrix matrix) {
+		double scale = 0;
+		for (int i = 1; i < matrix.getNumberOfExamples(); i++)
+			scale = Math.max(scale, matrix.get(0, i));
+		return relativeTolerance(matrix) * 4 * scale;
+	}
+
+	/**
+	 * classe Candidates
+	 * elenco, nell'ordine di scansione, delle coppie di posizioni vicine alla distanza minima
+	 * trovata durante la scansione di un livello, con la loro distanza nella matrice
+	 */
+	private static class Candidates {
+		private int[] pairs = new int[32]; // posizioni delle coppie, due per coppia
+		private double[] values = new double[16]; // distanze delle coppie nella matrice
+		private int size = 0;
+
+		/**
+		 * metodo add
+		 * aggiunge una coppia; se l'elenco è pieno, prima scarta le coppie la cui distanza supera limit
+		 *
+		 * @param p posizione del primo cluster
+		 * @param q posizione del secondo cluster
+		 * @param value distanza della coppia nella matrice
+		 * @param limit distanza oltre la quale una coppia non è più candidata
+		 */
+		void add(int p, int q, double value, double limit) {
+			if (size == values.length) {
+				int kept = 0;
+				for (int c = 0; c < size; c++) {
+					if (values[c] <= limit) {
+						pairs[2 * kept] = pairs[2 * c];
+						pairs[2 * kept + 1] = pairs[2 * c + 1];
+						values[kept++] = values[c];
+					}
+				}
+				size = kept;
+				if (size > values.length / 2) {
+					values = Arrays.copyOf(values, values.length * 2);
+					pairs = Arrays.copyOf(pairs, pairs.length * 2);
+				}
+			}
+			pairs[2 * size] = p;
+			pairs[2 * size + 1] = q;
+			values[size++] = value;
+		}
+
+		void clear() {
+			size = 0;
+		}
+
+		int size() {
+			return size;
+		}
+
+		int first(int c) {
+			return pairs[2 * c];
+		}
+
+		int second(int c) {
+			return pairs[2 * c + 1];
+		}
+
+		double value(int c) {
+			return values[c];
+		}
+	}
+}
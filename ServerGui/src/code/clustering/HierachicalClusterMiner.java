@@ -1,7 +1,12 @@
 package code.clustering;
+import code.data.CFTree;
+import code.data.CondensedDistanceMatrix;
 import code.data.Data;
 import code.data.InvalidSizeException;
 import code.distance.ClusterDistance;
+import code.distance.CompleteLinkDistance;
+import code.distance.LanceWilliamsDistance;
+import code.distance.SingleLinkDistance;
 
 import java.io.*;
 
@@ -11,7 +16,30 @@ import java.io.*;
  *
  */
 public class HierachicalClusterMiner implements Serializable {
+	/** numero massimo di attributi per cui AUTO sceglie BORUVKA */
+	private static final int BORUVKA_MAX_ATTRIBUTES = 16;
+
 	private Dendrogram dendrogram;
+	/** numero massimo di thread del pool condiviso usati da questa istanza; non viene salvato su file */
+	private transient int parallelism = 1;
+	/** contatori delle coppie valutate e scartate nell'ultimo calcolo; non vengono salvati su file */
+	private transient MiningMetrics metrics = new MiningMetrics();
+	/** soglia iniziale dei micro-cluster della modalità BIRCH (raggio quadratico medio massimo) */
+	private transient double birchThreshold = Double.parseDouble(System.getProperty("hclus.birch.threshold", "0"));
+	/** memoria massima, in byte, dell'albero CF della modalità BIRCH */
+	private transient long birchMemory = Long.getLong("hclus.birch.memory", Runtime.getRuntime().maxMemory() / 16);
+	/** tempo di calcolo desiderato della modalità SAMPLE, in millisecondi */
+	private transient long sampleLatency = Long.getLong("hclus.sample.latencyMillis", 2000);
+	/** modo di scelta del campione della modalità SAMPLE */
+	private transient SamplingStrategy samplingStrategy = SamplingStrategy.valueOf(System.getProperty("hclus.sample.strategy", "STRATIFIED"));
+	/** seme del generatore casuale della modalità SAMPLE */
+	private transient long sampleSeed = Long.getLong("hclus.sample.seed", 0);
+	/** frazione degli esempi su cui è stato calcolato il dendrogramma esatto, 1 se non è stato usato un campione */
+	private double samplingRatio = 1;
+	/** modalità approssimata (BIRCH o SAMPLE) con cui è stato calcolato il dendrogramma, null se è esatto */
+	private MiningMode approximation = null;
+	/** numero di micro-cluster o di esempi del campione su cui è stato calcolato il dendrogramma approssimato */
+	private int representatives = 0;
 
 	/**
 	 * Costruttore
@@ -31,35 +59,348 @@ public class HierachicalClusterMiner implements Serializable {
 		return dendrogram.getDepth();
 	}
 
+	/**
+	 * metodo setParallelism
+	 * imposta il numero massimo di thread del pool condiviso (MiningPool) che il calcolo
+	 * del dendrogramma può occupare; il valore è limitato alla dimensione del pool
+	 * @param parallelism numero massimo di thread, 1 per il calcolo sequenziale
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(1, Math.min(parallelism, MiningPool.getParallelism()));
+	}
+
+	/**
+	 * metodo setBirchParameters
+	 * imposta i parametri dell'albero CF usato dalla modalità BIRCH; per default sono letti dalle proprietà
+	 * di sistema hclus.birch.threshold (0) e hclus.birch.memory (un sedicesimo della memoria della JVM)
+	 * @param threshold raggio quadratico medio massimo iniziale di un micro-cluster
+	 * @param memoryBudget memoria massima dell'albero, in byte; se superata la soglia viene aumentata
+	 */
+	public void setBirchParameters(double threshold, long memoryBudget) {
+		this.birchThreshold = threshold;
+		this.birchMemory = memoryBudget;
+	}
+
+	/**
+	 * metodo setSampling
+	 * imposta i parametri della modalità SAMPLE; per default sono letti dalle proprietà di sistema
+	 * hclus.sample.latencyMillis (2000), hclus.sample.strategy (STRATIFIED) e hclus.sample.seed (0)
+	 * @param latencyMillis tempo di calcolo desiderato, in millisecondi, da cui è ricavata la dimensione del campione
+	 * @param strategy modo di scelta del campione
+	 * @param seed seme del generatore casuale
+	 */
+	public void setSampling(long latencyMillis, SamplingStrategy strategy, long seed) {
+		this.sampleLatency = latencyMillis;
+		this.samplingStrategy = strategy;
+		this.sampleSeed = seed;
+	}
+
+	/**
+	 * metodo getSamplingRatio
+	 * restituisce la frazione degli esempi su cui è stato calcolato il dendrogramma esatto:
+	 * se è minore di 1 il dendrogramma è approssimato
+	 * @return frazione degli esempi campionati, 1 se non è stato usato un campione
+	 */
+	public double getSamplingRatio() {
+		return samplingRatio;
+	}
+
+	/**
+	 * metodo isApproximate
+	 * indica se il dendrogramma è approssimato, cioè calcolato sui micro-cluster della modalità BIRCH
+	 * o sul campione della modalità SAMPLE anziché su tutti gli esempi
+	 * @return true se il dendrogramma è approssimato
+	 */
+	public boolean isApproximate() {
+		return approximation != null;
+	}
+
+	/**
+	 * metodo getApproximation
+	 * restituisce la modalità approssimata con cui è stato calcolato il dendrogramma
+	 * @return BIRCH o SAMPLE, null se il dendrogramma è esatto
+	 */
+	public MiningMode getApproximation() {
+		return approximation;
+	}
+
+	/**
+	 * metodo getRepresentatives
+	 * restituisce il numero di micro-cluster (BIRCH) o di esempi del campione (SAMPLE)
+	 * su cui è stato calcolato il dendrogramma approssimato
+	 * @return numero di rappresentanti, 0 se il dendrogramma è esatto
+	 */
+	public int getRepresentatives() {
+		return representatives;
+	}
+
+	/**
+	 * metodo getMetrics
+	 * restituisce i contatori delle coppie di cluster valutate e scartate dall'ultimo calcolo;
+	 * sono aggiornati dalle modalità PAIRWISE e PRIORITY_QUEUE
+	 * @return contatori dell'ultimo calcolo
+	 */
+	public MiningMetrics getMetrics() {
+		return metrics != null ? metrics : new MiningMetrics();
+	}
+
 	/**
 	 * metodo mine
-	 * calcola il clustering del dataset data
+	 * calcola il clustering del dataset data con la modalità AUTO
 	 * @param data dataset su cui calcolare il clustering
 	 * @param distance interfaccia di calcolo distanza tra cluster
 	 */
 	public void mine(Data data, ClusterDistance distance) throws InvalidDepthException, InvalidSizeException, InvalidClustersNumberException {
+		mine(data, distance, MiningMode.AUTO);
+	}
+
+	/**
+	 * metodo mine
+	 * calcola il clustering del dataset data con la modalità indicata;
+	 * con AUTO, per la distanza single-link con pochi livelli le fusioni sono ricavate dalle distanze minime
+	 * tra esempi (TOP_K), con pochi attributi dall'albero ricoprente minimo (BORUVKA); altrimenti, se la distanza ammette l'aggiornamento di Lance-Williams i livelli sono
+	 * calcolati sulla matrice delle distanze tra cluster, altrimenti con SLINK (single-link) o con la coda con priorità
+	 * @param data dataset su cui calcolare il clustering
+	 * @param distance interfaccia di calcolo distanza tra cluster
+	 * @param mode modalità di calcolo del dendrogramma
+	 * @throws IllegalArgumentException se la distanza non è utilizzabile con la modalità scelta
+	 */
+	public void mine(Data data, ClusterDistance distance, MiningMode mode) throws InvalidDepthException, InvalidSizeException, InvalidClustersNumberException {
 		if (getDepth() > data.getNumberOfExample()) {
 			throw new InvalidDepthException("Numero di Esempi maggiore della profondità del dendrogramma!\n");
 		}
 
-		ClusterSet level0 = new ClusterSet(data.getNumberOfExample());
-		for (int i = 0; i < data.getNumberOfExample(); i++) {
-			Cluster c = new Cluster();
-			c.addData(i);
-			level0.add(c);
+		dendrogram.init(data.getNumberOfExample());
+		metrics = new MiningMetrics();
+		samplingRatio = 1;
+		approximation = null;
+		representatives = 0;
+
+		if (mode == MiningMode.AUTO)
+			mode = autoMode(data, distance, getDepth());
+
+		switch (mode) {
+			case DISTANCE_MATRIX -> new DistanceMatrixEngine(lanceWilliams(distance, mode)).mine(dendrogram, data, data.distance());
+			case NN_CHAIN -> new NearestNeighborChainEngine(lanceWilliams(distance, mode)).mine(dendrogram, data, data.distance());
+			case SLINK -> {
+				requireSingleLink(distance, mode);
+				new SlinkEngine().mine(dendrogram, data);
+			}
+			case PRIORITY_QUEUE -> new PriorityQueueEngine(distance, metrics).mine(dendrogram, data);
+			case BORUVKA -> {
+				requireSingleLink(distance, mode);
+				new BoruvkaSingleLinkEngine().mine(dendrogram, data);
+			}
+			case TOP_K -> {
+				requireSingleLink(distance, mode);
+				new TopKSingleLinkEngine(parallelism).mine(dendrogram, data);
+			}
+			case BIRCH -> mineMicroClusters(data, distance);
+			case SAMPLE -> mineSample(data, distance);
+			default -> {
+				ClusterSet current = dendrogram.getClusterSet(0);
+				for (int i = 1; i < getDepth(); i++) {
+					ClosestPair pair = current.findClosestPair(distance, data, parallelism, metrics);
+					Cluster c1 = current.get(pair.first);
+					Cluster c2 = current.get(pair.second);
+					dendrogram.addMerge(c1.get(0), c2.get(0), pair.distance, c1.getSize() + c2.getSize());
+					current = current.mergeClusters(c1, c2);
+				}
+			}
+		}
+	}
+
+	/**
+	 * metodo mineMicroClusters
+	 * calcola il clustering approssimato della modalità BIRCH: il livello 0 è formato dai micro-cluster
+	 * di un CFTree degli esempi. Le distanze che dipendono dalla dimensione dei cluster sono calcolate
+	 * sui micro-cluster con tutti i loro esempi (con le statistiche dei cluster costano O(d) per coppia);
+	 * single-link e complete-link, che non ne dipendono, sono calcolate sui centroidi dei micro-cluster
+	 * @param data dataset su cui calcolare il clustering
+	 * @param distance interfaccia di calcolo distanza tra cluster
+	 */
+	private void mineMicroClusters(Data data, ClusterDistance distance) throws InvalidDepthException, InvalidSizeException, InvalidClustersNumberException {
+		CFTree tree = new CFTree(data, birchThreshold, birchMemory);
+		int m = tree.getNumberOfMicroClusters();
+		if (getDepth() > m)
+			throw new InvalidDepthException("Numero di micro-cluster minore della profondità del dendrogramma!\n");
+
+		// esempio minimo ed esempi di ogni micro-cluster
+		int n = data.getNumberOfExample();
+		int[] assignment = tree.getAssignment();
+		int[] first = new int[m];
+		int[] sizes = new int[m];
+		for (int i = n - 1; i >= 0; i--) {
+			first[assignment[i]] = i;
+			sizes[assignment[i]]++;
+		}
+		int[][] members = new int[m][];
+		for (int c = 0; c < m; c++)
+			members[c] = new int[sizes[c]];
+		int[] filled = new int[m];
+		int[] partition = new int[n];
+		for (int i = 0; i < n; i++) {
+			int c = assignment[i];
+			members[c][filled[c]++] = i;
+			partition[i] = first[c];
+		}
+		dendrogram.init(n, partition);
+
+		if (distance instanceof SingleLinkDistance || distance instanceof CompleteLinkDistance) {
+			copyMerges(mineExact(tree.getCentroids(), distance), first, sizes);
+		} else {
+			Cluster[] clusters = new Cluster[m];
+			for (int c = 0; c < m; c++)
+				clusters[c] = new Cluster(members[c]);
+			new PriorityQueueEngine(distance, metrics).mine(dendrogram, data, clusters);
+		}
+		approximation = MiningMode.BIRCH;
+		representatives = m;
+	}
+
+	/**
+	 * metodo mineSample
+	 * calcola il clustering approssimato della modalità SAMPLE: il dendrogramma esatto di un campione
+	 * degli esempi, in cui ogni altro esempio è aggiunto al cluster dell'esempio del campione più vicino
+	 * @param data dataset su cui calcolare il clustering
+	 * @param distance interfaccia di calcolo distanza tra cluster
+	 */
+	private void mineSample(Data data, ClusterDistance distance) throws InvalidDepthException, InvalidSizeException, InvalidClustersNumberException {
+		int n = data.getNumberOfExample();
+		SampleEngine engine = new SampleEngine(samplingStrategy, sampleLatency, sampleSeed, parallelism);
+		int size = engine.sampleSize(data, distance, getDepth());
+		if (size >= n) {
+			mine(data, distance, MiningMode.AUTO);
+			return;
+		}
+
+		int[] examples = engine.sample(data, size);
+		Data sample = data.subset(examples);
+		int[] nearest = engine.assign(data, examples, sample);
+
+		// ogni esempio del campione forma, con gli esempi che gli sono più vicini, un cluster del livello 0
+		int[] first = new int[size];
+		int[] sizes = new int[size];
+		for (int i = n - 1; i >= 0; i--) {
+			first[nearest[i]] = i;
+			sizes[nearest[i]]++;
 		}
-		dendrogram.setClusterSet(level0, 0);
-		for (int i = 1; i < getDepth(); i++) {
-            ClusterSet nextlevel = null;
-            try {
-                nextlevel = dendrogram.getClusterSet(i - 1).mergeClosestClusters(distance, data);
-				dendrogram.setClusterSet(nextlevel, i);
-			} catch (InvalidSizeException | InvalidClustersNumberException e) {
-				i = getDepth();
-                throw e;
-            }
-        }
+		int[] partition = new int[n];
+		for (int i = 0; i < n; i++)
+			partition[i] = first[nearest[i]];
+		dendrogram.init(n, partition);
+
+		copyMerges(mineExact(sample, distance), first, sizes);
+		samplingRatio = (double) size / n;
+		approximation = MiningMode.SAMPLE;
+		representatives = size;
+	}
 
+	/**
+	 * metodo mineExact
+	 * calcola con la modalità AUTO il dendrogramma di un dataset ridotto (centroidi o campione)
+	 * con la stessa profondità e lo stesso parallelismo di questa istanza
+	 * @param reducedData dataset ridotto
+	 * @param distance interfaccia di calcolo distanza tra cluster
+	 * @return il dendrogramma calcolato
+	 */
+	private Dendrogram mineExact(Data reducedData, ClusterDistance distance) throws InvalidDepthException, InvalidSizeException, InvalidClustersNumberException {
+		HierachicalClusterMiner reduced = new HierachicalClusterMiner(getDepth());
+		reduced.setParallelism(parallelism);
+		reduced.mine(reducedData, distance, MiningMode.AUTO);
+		metrics = reduced.getMetrics();
+		return reduced.dendrogram;
+	}
+
+	/**
+	 * metodo copyMerges
+	 * aggiunge al dendrogramma le fusioni di reduced, calcolato su un esempio rappresentativo
+	 * per ogni cluster del livello 0: il rappresentante r sta per il cluster con esempio minimo first[r]
+	 * @param reduced dendrogramma dei rappresentanti
+	 * @param first esempio minimo del cluster di ogni rappresentante
+	 * @param sizes numero di esempi del cluster di ogni rappresentante; l'array viene modificato
+	 */
+	private void copyMerges(Dendrogram reduced, int[] first, int[] sizes) {
+		UnionFind sets = new UnionFind(first.length);
+		int[] minOf = first.clone();
+		for (int level = 1; level < getDepth(); level++) {
+			int ra = sets.find(reduced.getFirst(level));
+			int rb = sets.find(reduced.getSecond(level));
+			int min1 = Math.min(minOf[ra], minOf[rb]);
+			int min2 = Math.max(minOf[ra], minOf[rb]);
+			int size = sizes[ra] + sizes[rb];
+			int root = sets.union(ra, rb);
+			sizes[root] = size;
+			minOf[root] = min1;
+			dendrogram.addMerge(min1, min2, reduced.getHeight(level), size);
+		}
+	}
+
+	/**
+	 * metodo autoMode
+	 * sceglie la modalità di calcolo per la modalità AUTO: la matrice delle distanze
+	 * è usata solo se entra nello heap, cioè se occupa al più metà della memoria disponibile per la JVM;
+	 * le matrici più grandi sono mappate su file e sono disponibili solo scegliendo esplicitamente la modalità
+	 * @param data dataset su cui calcolare il clustering
+	 * @param distance distanza scelta
+	 * @param depth profondità del dendrogramma
+	 * @return modalità da utilizzare
+	 */
+	private static MiningMode autoMode(Data data, ClusterDistance distance, int depth) {
+		return autoMode(data.getNumberOfExample(), data.getNumberOfAttributes(), distance, depth);
+	}
+
+	/**
+	 * metodo autoMode
+	 * sceglie la modalità di calcolo per la modalità AUTO su un dataset di n esempi con il numero di attributi indicato;
+	 * usato anche da SampleEngine per stimare il costo del calcolo su un campione
+	 * @param n numero di esempi
+	 * @param attributes numero di attributi
+	 * @param distance distanza scelta
+	 * @param depth profondità del dendrogramma
+	 * @return modalità da utilizzare
+	 */
+	static MiningMode autoMode(long n, int attributes, ClusterDistance distance, int depth) {
+		// con pochi livelli le fusioni single-link sono gli archi minimi, trovati con una sola scansione
+		if (distance instanceof SingleLinkDistance && (depth - 1) * 64L <= n)
+			return MiningMode.TOP_K;
+		// con pochi attributi il KDTree scarta quasi tutte le coppie
+		if (distance instanceof SingleLinkDistance && attributes <= BORUVKA_MAX_ATTRIBUTES)
+			return MiningMode.BORUVKA;
+
+		long bytes = CondensedDistanceMatrix.bytes(n, Boolean.getBoolean("hclus.singlePrecision"));
+		boolean matrixFits = n <= CondensedDistanceMatrix.MAX_EXAMPLES
+				&& bytes <= Runtime.getRuntime().maxMemory() / 2;
+
+		if (distance instanceof LanceWilliamsDistance && matrixFits)
+			return MiningMode.DISTANCE_MATRIX;
+		if (distance instanceof SingleLinkDistance)
+			return MiningMode.SLINK;
+		return MiningMode.PRIORITY_QUEUE;
+	}
+
+	/**
+	 * metodo requireSingleLink
+	 * verifica che la distanza sia single-link, come richiesto dalla modalità
+	 * @param distance distanza scelta
+	 * @param mode modalità scelta
+	 */
+	private static void requireSingleLink(ClusterDistance distance, MiningMode mode) {
+		if (!(distance instanceof SingleLinkDistance))
+			throw new IllegalArgumentException("La modalità " + mode + " è disponibile solo per la distanza single-link\n");
+	}
+
+	/**
+	 * metodo lanceWilliams
+	 * verifica che la distanza ammetta l'aggiornamento di Lance-Williams richiesto dalla modalità
+	 * @param distance distanza scelta
+	 * @param mode modalità scelta
+	 * @return la distanza come LanceWilliamsDistance
+	 */
+	private static LanceWilliamsDistance lanceWilliams(ClusterDistance distance, MiningMode mode) {
+		if (!(distance instanceof LanceWilliamsDistance))
+			throw new IllegalArgumentException("La modalità " + mode + " non è disponibile per la distanza scelta\n");
+		return (LanceWilliamsDistance) distance;
 	}
 
 	/**
@@ -0,0 +1,250 @@
+package code.clustering;
+
+import java.util.PriorityQueue;
+
+/**
+ * classe MergeList
+ * modella la sequenza di fusioni prodotta da una strategia di clustering
+ * che non procede livello per livello: ogni fusione è descritta da due esempi
+ * appartenenti ai cluster fusi e dalla distanza a cui avviene.
+ * Le fusioni ricostruiscono i livelli del dendrogramma, ordinate per distanza
+ * nel rispetto delle dipendenze tra di esse (fill) o raggruppate per distanza (mergeGroup)
+ *
+ */
+class MergeList {
+	private final int[] first;
+	private final int[] second;
+	private final double[] height;
+	private int count = 0;
+
+	/**
+	 * Costruttore
+	 *
+	 * @param capacity numero massimo di fusioni
+	 */
+	MergeList(int capacity) {
+		first = new int[capacity];
+		second = new int[capacity];
+		height = new double[capacity];
+	}
+
+	/**
+	 * metodo add
+	 * aggiunge in coda la fusione del cluster che contiene a con quello che contiene b
+	 *
+	 * @param a esempio del primo cluster
+	 * @param b esempio del secondo cluster
+	 * @param h distanza tra i due cluster
+	 */
+	void add(int a, int b, double h) {
+		first[count] = a;
+		second[count] = b;
+		height[count] = h;
+		count++;
+	}
+
+	/**
+	 * metodo getSize
+	 * restituisce il numero di fusioni memorizzate
+	 *
+	 * @return numero di fusioni
+	 */
+	int getSize() {
+		return count;
+	}
+
+	/**
+	 * metodo getFirst
+	 *
+	 * @param m indice della fusione
+	 * @return esempio del primo cluster della fusione m
+	 */
+	int getFirst(int m) {
+		return first[m];
+	}
+
+	/**
+	 * metodo getSecond
+	 *
+	 * @param m indice della fusione
+	 * @return esempio del secondo cluster della fusione m
+	 */
+	int getSecond(int m) {
+		return second[m];
+	}
+
+	/**
+	 * metodo getHeight
+	 *
+	 * @param m indice della fusione
+	 * @return distanza della fusione m
+	 */
+	double getHeight(int m) {
+		return height[m];
+	}
+
+	/**
+	 * metodo sortByHeight
+	 * ordina le fusioni per distanza crescente; l'ordinamento è stabile
+	 */
+	void sortByHeight() {
+		int[] order = new int[count];
+		for (int i = 0; i < count; i++)
+			order[i] = i;
+		mergeSort(order, new int[count], 0, count);
+
+		int[] f = first.clone();
+		int[] s = second.clone();
+		double[] h = height.clone();
+		for (int i = 0; i < count; i++) {
+			first[i] = f[order[i]];
+			second[i] = s[order[i]];
+			height[i] = h[order[i]];
+		}
+	}
+
+	/**
+	 * metodo fill
+	 * inserisce nel dendrogramma le fusioni dei livelli successivi al livello 0, una per livello.
+	 * Le fusioni devono essere nell'ordine in cui sono state trovate, che ne rispetta le dipendenze:
+	 * una fusione è applicata solo dopo quelle che hanno formato i suoi due cluster, e tra le fusioni
+	 * così applicabili viene scelta quella a distanza minore e, a parità di distanza, quella tra i cluster
+	 * che precedono nel ClusterSet (ordinati per esempio minimo). Ogni livello fonde quindi esattamente
+	 * i due cluster fusi dalla strategia, alla distanza da essa calcolata; a parità di distanza la coppia
+	 * scelta può comunque differire da quella di ClusterSet.mergeClosestClusters, perché la strategia
+	 * può aver fuso cluster diversi da quelli che avrebbe fuso l'algoritmo classico
+	 *
+	 * @param dendrogram dendrogramma inizializzato con il numero di esempi
+	 * @param numberOfExamples numero di esempi del dataset
+	 */
+	void fill(Dendrogram dendrogram, int numberOfExamples) throws InvalidClustersNumberException {
+		if (count < dendrogram.getDepth() - 1)
+			throw new InvalidClustersNumberException("Non ci sono abbastanza cluster da fondere");
+
+		// ricostruisce, nell'ordine della lista, i cluster fusi da ogni fusione e la fusione che li ha formati
+		UnionFind sets = new UnionFind(numberOfExamples);
+		int[] minOf = new int[numberOfExamples];
+		int[] lastMerge = new int[numberOfExamples];
+		for (int i = 0; i < numberOfExamples; i++) {
+			minOf[i] = i;
+			lastMerge[i] = -1;
+		}
+		int[] min1 = new int[count];
+		int[] min2 = new int[count];
+		int[] size = new int[count];
+		int[] parent = new int[count];
+		int[] pending = new int[count];
+		PriorityQueue<Integer> ready = new PriorityQueue<>((x, y) -> {
+			int c = Double.compare(height[x], height[y]);
+			return c != 0 ? c : Long.compare(pairKey(min1[x], min2[x]), pairKey(min1[y], min2[y]));
+		});
+		for (int m = 0; m < count; m++) {
+			int r1 = sets.find(first[m]);
+			int r2 = sets.find(second[m]);
+			min1[m] = Math.min(minOf[r1], minOf[r2]);
+			min2[m] = Math.max(minOf[r1], minOf[r2]);
+			parent[m] = -1;
+			for (int child : new int[] {lastMerge[r1], lastMerge[r2]}) {
+				if (child >= 0) {
+					parent[child] = m;
+					pending[m]++;
+				}
+			}
+			int root = sets.union(r1, r2);
+			minOf[root] = min1[m];
+			lastMerge[root] = m;
+			size[m] = sets.getSize(root);
+			if (pending[m] == 0)
+				ready.add(m);
+		}
+
+		for (int level = 1; level < dendrogram.getDepth(); level++) {
+			int m = ready.poll();
+			dendrogram.addMerge(min1[m], min2[m], height[m], size[m]);
+			int p = parent[m];
+			if (p >= 0 && --pending[p] == 0)
+				ready.add(p);
+		}
+	}
+
+	/**
+	 * metodo mergeGroup
+	 * applica al dendrogramma, fino a un massimo di limit, le fusioni date dagli archi (first[e], second[e])
+	 * con e tra from (incluso) e to (escluso), tutti alla distanza height: ad ogni passo viene applicato
+	 * l'arco tra i cluster che precedono nel ClusterSet (ordinati per esempio minimo), saltando quelli
+	 * interni a un cluster, come accade in ClusterSet.mergeClosestClusters
+	 *
+	 * @param dendrogram dendrogramma a cui aggiungere le fusioni
+	 * @param sets partizione corrente degli esempi, aggiornata con le fusioni
+	 * @param minOf esempio minimo dell'insieme di ogni rappresentante, aggiornato con le fusioni
+	 * @param first primo esempio di ogni arco
+	 * @param second secondo esempio di ogni arco
+	 * @param from primo arco del gruppo
+	 * @param to arco successivo all'ultimo del gruppo
+	 * @param height distanza comune agli archi del gruppo
+	 * @param limit numero massimo di fusioni da applicare
+	 * @return numero di fusioni applicate
+	 */
+	static int mergeGroup(Dendrogram dendrogram, UnionFind sets, int[] minOf, int[] first, int[] second,
+			int from, int to, double height, int limit) {
+		int merges = 0;
+		while (merges < limit) {
+			int best = -1;
+			long bestKey = Long.MAX_VALUE;
+			for (int e = from; e < to; e++) {
+				int r1 = sets.find(first[e]);
+				int r2 = sets.find(second[e]);
+				if (r1 != r2) {
+					long key = pairKey(minOf[r1], minOf[r2]);
+					if (key < bestKey) {
+						bestKey = key;
+						best = e;
+					}
+				}
+			}
+			if (best < 0)
+				break;
+
+			int r1 = sets.find(first[best]);
+			int r2 = sets.find(second[best]);
+			int min1 = Math.min(minOf[r1], minOf[r2]);
+			int min2 = Math.max(minOf[r1], minOf[r2]);
+			int root = sets.union(r1, r2);
+			minOf[root] = min1;
+			dendrogram.addMerge(min1, min2, height, sets.getSize(root));
+			merges++;
+		}
+		return merges;
+	}
+
+	/**
+	 * metodo pairKey
+	 * restituisce una chiave che ordina le coppie (min, max) in ordine lessicografico
+	 */
+	static long pairKey(int a, int b) {
+		return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+	}
+
+	/**
+	 * metodo mergeSort
+	 * ordina order[from..to) per distanza crescente mantenendo l'ordine relativo a parità di distanza
+	 */
+	private void mergeSort(int[] order, int[] buffer, int from, int to) {
+		if (to - from < 2)
+			return;
+		int mid = (from + to) >>> 1;
+		mergeSort(order, buffer, from, mid);
+		mergeSort(order, buffer, mid, to);
+		if (height[order[mid - 1]] <= height[order[mid]])
+			return;
+
+		System.arraycopy(order, from, buffer, from, to - from);
+		int i = from, j = mid, k = from;
+		while (i < mid && j < to)
+			order[k++] = height[buffer[j]] < height[buffer[i]] ? buffer[j++] : buffer[i++];
+		while (i < mid)
+			order[k++] = buffer[i++];
+		while (j < to)
+			order[k++] = buffer[j++];
+	}
+}
@@ -0,0 +1,55 @@
+package code.clustering;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * classe MiningMetrics
+ * conta le coppie di cluster esaminate durante il calcolo di un dendrogramma:
+ * quelle di cui è stata calcolata la distanza e quelle scartate perché il limite inferiore
+ * della loro distanza non era minore della distanza migliore già trovata.
+ * I contatori possono essere aggiornati da più thread
+ *
+ */
+public class MiningMetrics {
+	private final LongAdder evaluatedPairs = new LongAdder();
+	private final LongAdder prunedPairs = new LongAdder();
+
+	/**
+	 * metodo add
+	 * aggiunge ai contatori i risultati di una ricerca
+	 *
+	 * @param evaluated coppie di cui è stata calcolata la distanza
+	 * @param pruned coppie scartate con il limite inferiore
+	 */
+	void add(long evaluated, long pruned) {
+		evaluatedPairs.add(evaluated);
+		prunedPairs.add(pruned);
+	}
+
+	/**
+	 * metodo getEvaluatedPairs
+	 *
+	 * @return numero di coppie di cui è stata calcolata la distanza
+	 */
+	public long getEvaluatedPairs() {
+		return evaluatedPairs.sum();
+	}
+
+	/**
+	 * metodo getPrunedPairs
+	 *
+	 * @return numero di coppie scartate con il limite inferiore
+	 */
+	public long getPrunedPairs() {
+		return prunedPairs.sum();
+	}
+
+	/**
+	 * metodo toString
+	 *
+	 * @return descrizione dei contatori
+	 */
+	public String toString() {
+		return "coppie valutate: " + getEvaluatedPairs() + ", coppie scartate: " + getPrunedPairs();
+	}
+}
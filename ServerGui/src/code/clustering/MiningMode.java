@@ -0,0 +1,63 @@
+package code.clustering;
+
+/**
+ * Enumerativo MiningMode
+ * modella le strategie con cui HierachicalClusterMiner può calcolare il dendrogramma
+ *
+ */
+public enum MiningMode {
+	/**
+	 * per la distanza single-link sceglie TOP_K se la profondità è molto minore del numero di esempi,
+	 * BORUVKA se gli esempi hanno pochi attributi; altrimenti DISTANCE_MATRIX se la distanza lo consente
+	 * e la matrice entra in memoria, SLINK per la distanza single-link, altrimenti PRIORITY_QUEUE
+	 */
+	AUTO,
+	/** ad ogni livello ricalcola la distanza tra tutte le coppie di cluster (ClusterSet.mergeClosestClusters) */
+	PAIRWISE,
+	/**
+	 * mantiene la matrice delle distanze tra cluster aggiornata con la formula di Lance-Williams;
+	 * per Ward, centroid-link e average-link le coppie quasi alla distanza minima sono confrontate sulla
+	 * distanza ricalcolata sui cluster, quindi i risultati coincidono con PAIRWISE
+	 */
+	DISTANCE_MATRIX,
+	/**
+	 * catena dei vicini più prossimi: costruisce l'intera gerarchia in tempo O(n²)
+	 * per le distanze riducibili, con gli stessi livelli di PAIRWISE; se una scelta della catena
+	 * dipende da distanze quasi uguali il calcolo è ripetuto con DISTANCE_MATRIX. Non è mai scelta da AUTO
+	 */
+	NN_CHAIN,
+	/**
+	 * algoritmo SLINK, solo per SingleLinkDistance: tempo O(n²) e memoria O(n),
+	 * senza matrice delle distanze
+	 */
+	SLINK,
+	/**
+	 * solo per SingleLinkDistance: una sola scansione parallela seleziona le distanze minime
+	 * tra esempi, da cui si ottengono le fusioni dei primi livelli; adatta a profondità
+	 * molto minori del numero di esempi
+	 */
+	TOP_K,
+	/**
+	 * per qualsiasi distanza: mantiene il vicino più prossimo di ogni cluster in una coda con priorità
+	 * e dopo ogni fusione ricalcola solo le distanze dal cluster fuso; memoria O(n)
+	 */
+	PRIORITY_QUEUE,
+	/**
+	 * solo per SingleLinkDistance: albero ricoprente minimo costruito con l'algoritmo di Borůvka
+	 * su un KDTree degli esempi; sub-quadratico sui dataset con pochi attributi
+	 */
+	BORUVKA,
+	/**
+	 * approssimata, per tabelle molto grandi: gli esempi sono riassunti in micro-cluster da un CFTree
+	 * (BIRCH), che formano il livello 0 del dendrogramma; le fusioni successive sono calcolate sui
+	 * micro-cluster con i loro esempi, o sui loro centroidi per le distanze single-link e complete-link.
+	 * Non è mai scelta da AUTO
+	 */
+	BIRCH,
+	/**
+	 * approssimata: il dendrogramma è calcolato in modo esatto su un campione degli esempi, la cui dimensione
+	 * è ricavata dal tempo di calcolo desiderato; ogni altro esempio segue l'esempio del campione più vicino.
+	 * Non è mai scelta da AUTO
+	 */
+	SAMPLE
+}
@@ -0,0 +1,42 @@
+package code.clustering;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * classe MiningPool
+ * gestisce il ForkJoinPool condiviso da tutte le operazioni di clustering del server.
+ * Il numero di thread è letto dalla proprietà di sistema hclus.parallelism
+ * (di default il numero di processori disponibili)
+ *
+ */
+public final class MiningPool {
+	/** pool condiviso */
+	private static final ForkJoinPool POOL = new ForkJoinPool(
+			Math.max(1, Integer.getInteger("hclus.parallelism", Runtime.getRuntime().availableProcessors())));
+
+	/**
+	 * Costruttore privato: la classe non va istanziata
+	 */
+	private MiningPool() {
+	}
+
+	/**
+	 * metodo get
+	 * restituisce il pool condiviso
+	 *
+	 * @return pool condiviso
+	 */
+	static ForkJoinPool get() {
+		return POOL;
+	}
+
+	/**
+	 * metodo getParallelism
+	 * restituisce il numero di thread del pool condiviso
+	 *
+	 * @return numero di thread del pool
+	 */
+	public static int getParallelism() {
+		return POOL.getParallelism();
+	}
+}
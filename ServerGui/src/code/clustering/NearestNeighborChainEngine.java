@@ -0,0 +1,145 @@
+package code.clustering;
+
+import code.data.Data;
+import code.data.DistanceMatrix;
+import code.data.InvalidSizeException;
+import code.distance.LanceWilliamsDistance;
+
+/**
+ * classe NearestNeighborChainEngine
+ * calcola il dendrogramma con l'algoritmo della catena dei vicini più prossimi:
+ * la catena viene estesa con il vicino più prossimo del suo ultimo cluster finché
+ * gli ultimi due cluster non sono reciprocamente i più vicini, quindi questi vengono fusi.
+ * Per le distanze riducibili le fusioni trovate, ordinate per distanza (MergeList.fill), formano
+ * la gerarchia dell'algoritmo agglomerativo classico e l'intera gerarchia costa O(n²), purché
+ * nessuna scelta dipenda da distanze uguali: la catena risolve le parità in un ordine diverso da
+ * ClusterSet.mergeClosestClusters. Se due vicini più prossimi di un cluster sono quasi alla stessa distanza,
+ * o una fusione è quasi alla stessa altezza di quelle che hanno formato i suoi cluster (entro la tolleranza
+ * di DistanceMatrixEngine), il calcolo è ripetuto con DistanceMatrixEngine, così i livelli coincidono
+ * sempre con quelli di PAIRWISE
+ *
+ */
+class NearestNeighborChainEngine {
+	/** distanza tra cluster con formula di aggiornamento */
+	private final LanceWilliamsDistance distance;
+
+	/**
+	 * Costruttore
+	 *
+	 * @param distance distanza riducibile tra cluster
+	 */
+	NearestNeighborChainEngine(LanceWilliamsDistance distance) {
+		if (!distance.isReducible())
+			throw new IllegalArgumentException("La catena dei vicini più prossimi richiede una distanza riducibile\n");
+		this.distance = distance;
+	}
+
+	/**
+	 * metodo mine
+	 * inserisce nel dendrogramma le fusioni dei livelli successivi al livello 0
+	 *
+	 * @param dendrogram dendrogramma inizializzato con il numero di esempi di data
+	 * @param data dataset su cui calcolare il clustering
+	 * @param matrix matrice delle distanze tra gli esempi di data, calcolata per questo calcolo:
+	 * viene usata come copia di lavoro e aggiornata ad ogni fusione
+	 */
+	void mine(Dendrogram dendrogram, Data data, DistanceMatrix matrix) throws InvalidSizeException, InvalidClustersNumberException {
+		int n = matrix.getNumberOfExamples();
+		boolean singlePrecision = matrix.isSinglePrecision();
+
+		// con l'aggiornamento inesatto l'altezza di ogni fusione è ricalcolata sui cluster, come in PAIRWISE
+		boolean exact = distance.isUpdateExact() && !singlePrecision;
+		Cluster[] clusters = exact ? null : new Cluster[n];
+		// con l'aggiornamento esatto sono ambigue solo le distanze uguali
+		double relative = exact ? 0 : DistanceMatrixEngine.relativeTolerance(matrix);
+		double absolute = exact ? 0 : DistanceMatrixEngine.absoluteTolerance(matrix);
+
+		boolean[] active = new boolean[n];
+		int[] sizes = new int[n];
+		double[] formed = new double[n]; // altezza della fusione che ha formato il cluster di ogni posizione
+		for (int i = 0; i < n; i++) {
+			active[i] = true;
+			sizes[i] = 1;
+			formed[i] = Double.NEGATIVE_INFINITY;
+			if (!exact)
+				clusters[i] = new Cluster(new int[] {i});
+		}
+
+		MergeList merges = new MergeList(Math.max(n - 1, 0));
+		boolean ambiguous = false;
+		int[] chain = new int[n];
+		int length = 0;
+		int first = 0;
+		for (int remaining = n; remaining > 1; remaining--) {
+			if (length == 0) {
+				while (!active[first])
+					first++;
+				chain[length++] = first;
+			}
+
+			int a;
+			int b;
+			double minD;
+			while (true) {
+				a = chain[length - 1];
+				// a parità di distanza si preferisce il cluster precedente nella catena, così la catena termina
+				b = length >= 2 ? chain[length - 2] : -1;
+				minD = b >= 0 ? matrix.get(a, b) : Double.POSITIVE_INFINITY;
+				double second = Double.POSITIVE_INFINITY; // distanza del secondo vicino più prossimo
+				for (int k = 0; k < n; k++) {
+					if (active[k] && k != a && (length < 2 || k != chain[length - 2])) {
+						double d = matrix.get(a, k);
+						if (d < minD) {
+							second = minD;
+							minD = d;
+							b = k;
+						} else if (d < second)
+							second = d;
+					}
+				}
+				if (second <= minD + minD * relative + absolute) {
+					ambiguous = true;
+					break;
+				}
+				if (length >= 2 && b == chain[length - 2])
+					break;
+				chain[length++] = b;
+			}
+			if (ambiguous)
+				break;
+			length -= 2;
+
+			// il cluster fuso occupa la posizione dell'indice minore
+			int kept = Math.min(a, b);
+			int removed = Math.max(a, b);
+			if (!exact)
+				minD = distance.distance(clusters[kept], clusters[removed], data);
+			// una fusione quasi alla stessa altezza di quelle che hanno formato i suoi cluster
+			// può essere ordinata diversamente da PAIRWISE; le fusioni indipendenti sono invece ordinate
+			// da MergeList.fill per distanza e ordine dei cluster, come in PAIRWISE
+			if (minD <= Math.max(formed[a], formed[b]) * (1 + relative) + absolute) {
+				ambiguous = true;
+				break;
+			}
+			for (int k = 0; k < n; k++) {
+				if (active[k] && k != a && k != b)
+					matrix.set(kept, k, distance.update(matrix.get(a, k), matrix.get(b, k), minD, sizes[a], sizes[b], sizes[k]));
+			}
+			sizes[kept] = sizes[a] + sizes[b];
+			formed[kept] = minD;
+			active[removed] = false;
+			if (!exact) {
+				clusters[kept] = clusters[kept].mergeCluster(clusters[removed]);
+				clusters[removed] = null;
+			}
+			merges.add(kept, removed, minD);
+		}
+
+		if (ambiguous) {
+			matrix = null; // la copia di lavoro non serve più e può essere liberata
+			new DistanceMatrixEngine(distance).mine(dendrogram, data, data.distance(singlePrecision));
+			return;
+		}
+		merges.fill(dendrogram, n);
+	}
+}
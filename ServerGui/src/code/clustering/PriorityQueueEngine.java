@@ -0,0 +1,246 @@
+package code.clustering;
+
+import code.data.Data;
+import code.data.InvalidSizeException;
+import code.distance.ClusterDistance;
+
+import java.util.Arrays;
+
+/**
+ * classe PriorityQueueEngine
+ * calcola il dendrogramma con qualsiasi distanza tra cluster mantenendo, per ogni cluster,
+ * il vicino più prossimo tra i cluster che lo seguono nel ClusterSet, in una coda con priorità
+ * indicizzata ordinata per (distanza, posizione). Dopo una fusione sono ricalcolate solo le distanze
+ * dal cluster fuso; i vicini diventati obsoleti sono riconosciuti, e ricalcolati, solo quando
+ * raggiungono la cima della coda (invalidazione pigra, come nell'algoritmo generico di Müllner).
+ * Le distanze memorizzate sono limiti inferiori: un elemento in cima è valido se la distanza
+ * dal suo vicino, ricalcolata, coincide con quella memorizzata.
+ * La ricerca del vicino scarta i cluster il cui limite inferiore (ClusterDistance.lowerBound)
+ * non è minore della distanza migliore trovata.
+ * La coppia scelta ad ogni livello è la stessa di ClusterSet.mergeClosestClusters
+ *
+ */
+class PriorityQueueEngine {
+	/** distanza tra cluster */
+	private final ClusterDistance distance;
+	/** contatori delle coppie valutate e scartate */
+	private final MiningMetrics metrics;
+	private long evaluated = 0;
+	private long pruned = 0;
+
+	/**
+	 * Costruttore
+	 *
+	 * @param distance distanza tra cluster da utilizzare
+	 * @param metrics contatori a cui aggiungere le coppie valutate e scartate
+	 */
+	PriorityQueueEngine(ClusterDistance distance, MiningMetrics metrics) {
+		this.distance = distance;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * metodo mine
+	 * inserisce nel dendrogramma le fusioni dei livelli successivi al livello 0
+	 *
+	 * @param dendrogram dendrogramma inizializzato con il numero di esempi di data
+	 * @param data dataset su cui calcolare il clustering
+	 */
+	void mine(Dendrogram dendrogram, Data data) throws InvalidSizeException, InvalidClustersNumberException {
+		int n = data.getNumberOfExample();
+		Cluster[] clusters = new Cluster[n];
+		for (int i = 0; i < n; i++)
+			clusters[i] = new Cluster(new int[] {i});
+		mine(dendrogram, data, clusters);
+	}
+
+	/**
+	 * metodo mine
+	 * inserisce nel dendrogramma le fusioni dei livelli successivi al livello 0,
+	 * partendo dai cluster indicati invece che da un cluster per esempio
+	 *
+	 * @param dendrogram dendrogramma inizializzato con la partizione formata da clusters
+	 * @param data dataset su cui calcolare il clustering
+	 * @param clusters cluster del livello 0, ordinati per esempio minimo; l'array viene modificato
+	 */
+	void mine(Dendrogram dendrogram, Data data, Cluster[] clusters) throws InvalidSizeException, InvalidClustersNumberException {
+		int n = clusters.length;
+
+		// l'ordine delle posizioni è quello del ClusterSet
+		boolean[] active = new boolean[n];
+		Arrays.fill(active, true);
+
+		// nn[x] è il vicino più prossimo di x tra i cluster successivi, a distanza almeno mindist[x]
+		int[] nn = new int[n];
+		double[] mindist = new double[n];
+		IndexedMinHeap queue = new IndexedMinHeap(mindist);
+		for (int x = 0; x < n; x++) {
+			nearestNeighbor(x, clusters, active, nn, mindist, data);
+			queue.add(x);
+		}
+
+		for (int level = 1; level < dendrogram.getDepth(); level++) {
+			if (queue.getSize() <= 1)
+				throw new InvalidClustersNumberException("Non ci sono abbastanza cluster da fondere");
+
+			int a;
+			int b;
+			while (true) {
+				a = queue.peek();
+				b = nn[a];
+				evaluated++;
+				if (b != a && active[b] && distance.distance(clusters[a], clusters[b], data) == mindist[a])
+					break;
+				nearestNeighbor(a, clusters, active, nn, mindist, data);
+				queue.update(a);
+			}
+
+			double d = mindist[a];
+			int first = clusters[a].get(0);
+			int second = clusters[b].get(0);
+			clusters[a] = clusters[a].mergeCluster(clusters[b]);
+			clusters[b] = null;
+			active[b] = false;
+			queue.remove(b);
+			dendrogram.addMerge(first, second, d, clusters[a].getSize());
+
+			// i cluster che precedono a confrontano la distanza dal cluster fuso con il proprio vicino
+			for (int x = 0; x < a; x++) {
+				if (active[x]) {
+					// a parità di distanza il cluster fuso può ancora diventare il vicino: serve il valore esatto
+					double dx = distance.distance(clusters[x], clusters[a], data, Math.nextUp(mindist[x]));
+					evaluated++;
+					if (dx < mindist[x] || (dx == mindist[x] && a < nn[x])) {
+						mindist[x] = dx;
+						nn[x] = a;
+						queue.update(x);
+					}
+				}
+			}
+			nearestNeighbor(a, clusters, active, nn, mindist, data);
+			queue.update(a);
+		}
+		metrics.add(evaluated, pruned);
+	}
+
+	/**
+	 * metodo nearestNeighbor
+	 * calcola il vicino più prossimo di x tra i cluster attivi successivi;
+	 * a parità di distanza sceglie quello in posizione minore
+	 */
+	private void nearestNeighbor(int x, Cluster[] clusters, boolean[] active, int[] nn, double[] mindist, Data data) throws InvalidSizeException {
+		double best = Double.POSITIVE_INFINITY;
+		int neighbor = x;
+		for (int y = x + 1; y < clusters.length; y++) {
+			if (active[y]) {
+				if (neighbor != x && distance.lowerBound(clusters[x], clusters[y], data) >= best) {
+					pruned++;
+					continue;
+				}
+				double d = distance.distance(clusters[x], clusters[y], data, best);
+				evaluated++;
+				if (d < best || neighbor == x) {
+					best = d;
+					neighbor = y;
+				}
+			}
+		}
+		nn[x] = neighbor;
+		mindist[x] = best;
+	}
+
+	/**
+	 * classe IndexedMinHeap
+	 * coda con priorità sulle posizioni dei cluster, ordinata per (key[x], x),
+	 * che permette di aggiornare o rimuovere una posizione qualsiasi in tempo logaritmico
+	 */
+	private static class IndexedMinHeap {
+		private final double[] key;
+		private final int[] heap;
+		/** position[x] è l'indice di x nello heap, -1 se x non è presente */
+		private final int[] position;
+		private int size = 0;
+
+		IndexedMinHeap(double[] key) {
+			this.key = key;
+			heap = new int[key.length];
+			position = new int[key.length];
+			Arrays.fill(position, -1);
+		}
+
+		int getSize() {
+			return size;
+		}
+
+		int peek() {
+			return heap[0];
+		}
+
+		void add(int x) {
+			heap[size] = x;
+			position[x] = size;
+			siftUp(size++);
+		}
+
+		void remove(int x) {
+			int p = position[x];
+			if (p < 0)
+				return;
+			position[x] = -1;
+			size--;
+			if (p < size) {
+				heap[p] = heap[size];
+				position[heap[p]] = p;
+				update(heap[p]);
+			}
+		}
+
+		/**
+		 * metodo update
+		 * ripristina l'ordine dello heap dopo la modifica di key[x]
+		 */
+		void update(int x) {
+			int p = position[x];
+			if (p < 0)
+				return;
+			siftUp(p);
+			siftDown(position[x]);
+		}
+
+		private boolean less(int x, int y) {
+			return key[x] < key[y] || (key[x] == key[y] && x < y);
+		}
+
+		private void siftUp(int p) {
+			int x = heap[p];
+			while (p > 0) {
+				int parent = (p - 1) >>> 1;
+				if (!less(x, heap[parent]))
+					break;
+				heap[p] = heap[parent];
+				position[heap[p]] = p;
+				p = parent;
+			}
+			heap[p] = x;
+			position[x] = p;
+		}
+
+		private void siftDown(int p) {
+			int x = heap[p];
+			while (true) {
+				int child = 2 * p + 1;
+				if (child >= size)
+					break;
+				if (child + 1 < size && less(heap[child + 1], heap[child]))
+					child++;
+				if (!less(heap[child], x))
+					break;
+				heap[p] = heap[child];
+				position[heap[p]] = p;
+				p = child;
+			}
+			heap[p] = x;
+			position[x] = p;
+		}
+	}
+}
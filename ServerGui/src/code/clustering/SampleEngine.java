@@ -0,0 +1,308 @@
+package code.clustering;
+
+import code.data.Data;
+import code.data.KDTree;
+import code.distance.ClusterDistance;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * classe SampleEngine
+ * fornisce i passi della modalità SAMPLE: la scelta della dimensione del campione in base al tempo
+ * di risposta desiderato, l'estrazione del campione e l'assegnazione di ogni esempio all'esempio
+ * del campione più vicino, in una sola scansione parallela con un KDTree del campione.
+ * Il cluster più vicino a un esempio, con la distanza tra esempio e cluster data dal suo esempio più vicino,
+ * è a ogni livello quello che contiene l'esempio del campione più vicino: una sola assegnazione
+ * vale quindi per tutti i livelli del dendrogramma
+ *
+ */
+class SampleEngine {
+	/** numero di distanze calcolate per stimare quante distanze al secondo si possono calcolare */
+	private static final int CALIBRATION_PAIRS = 1 << 18;
+	/**
+	 * stima del costo, in distanze, dell'assegnazione di un esempio con il KDTree del campione
+	 * (visita dei nodi e confronto con gli esempi di poche foglie) su dataset con pochi attributi,
+	 * quasi indipendente dalla dimensione del campione;
+	 * con molti attributi la ricerca si avvicina a quella esaustiva e la stima cresce con d
+	 */
+	private static final int ASSIGNMENT_DISTANCES = 32;
+	/**
+	 * dimensione minima del campione: se la sola assegnazione supera il tempo desiderato,
+	 * un campione più piccolo peggiorerebbe il risultato senza ridurre di molto il tempo
+	 */
+	private static final int MIN_SAMPLE = 1024;
+
+	private final SamplingStrategy strategy;
+	/** tempo di calcolo desiderato, in millisecondi */
+	private final long latencyMillis;
+	/** seme del generatore casuale: lo stesso seme dà lo stesso campione */
+	private final long seed;
+	/** numero massimo di thread da impiegare nell'assegnazione */
+	private final int parallelism;
+
+	/**
+	 * Costruttore
+	 *
+	 * @param strategy modo di scelta del campione
+	 * @param latencyMillis tempo di calcolo desiderato, in millisecondi
+	 * @param seed seme del generatore casuale
+	 * @param parallelism numero massimo di thread da impiegare nell'assegnazione
+	 */
+	SampleEngine(SamplingStrategy strategy, long latencyMillis, long seed, int parallelism) {
+		this.strategy = strategy;
+		this.latencyMillis = latencyMillis;
+		this.seed = seed;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * metodo sampleSize
+	 * restituisce la dimensione massima del campione per cui il calcolo stimato rientra nel tempo desiderato,
+	 * non minore di depth né di MIN_SAMPLE: il costo del dendrogramma esatto del campione è stimato per la modalità
+	 * che AUTO sceglierebbe sul campione (metodo miningCost), l'assegnazione degli altri esempi costa circa
+	 * ASSIGNMENT_DISTANCES·d/4 distanze per esempio, divise tra i thread.
+	 * Il numero di distanze al secondo è misurato sul dataset
+	 *
+	 * @param data dataset da campionare
+	 * @param distance distanza tra cluster con cui sarà calcolato il dendrogramma del campione
+	 * @param depth profondità del dendrogramma
+	 * @return dimensione del campione, pari al numero di esempi se il calcolo esatto rientra nel tempo
+	 */
+	int sampleSize(Data data, ClusterDistance distance, int depth) {
+		int n = data.getNumberOfExample();
+		if (n <= depth)
+			return n;
+		double perMilli = distancesPerMilli(data);
+		double budget = latencyMillis * perMilli;
+		int attributes = data.getNumberOfAttributes();
+		double perExample = ASSIGNMENT_DISTANCES * Math.max(1, attributes / 4.0);
+
+		int lo = Math.max(depth, Math.min(n, MIN_SAMPLE));
+		int hi = n;
+		while (lo < hi) {
+			int s = (int) (((long) lo + hi + 1) >>> 1);
+			double assignment = (double) (n - s) * perExample / parallelism;
+			if (miningCost(s, attributes, distance, depth, perExample) + assignment <= budget)
+				lo = s;
+			else
+				hi = s - 1;
+		}
+		return lo;
+	}
+
+	/**
+	 * metodo miningCost
+	 * restituisce il numero stimato di distanze tra esempi equivalenti al calcolo del dendrogramma
+	 * di profondità depth su un campione di s esempi, con la modalità scelta da AUTO per il campione.
+	 * La scansione di una matrice delle distanze costa circa un attributo per coppia; il ricalcolo delle distanze
+	 * dal cluster fuso di PRIORITY_QUEUE è stimato con cluster di dimensione media s/(s - livello)
+	 *
+	 * @param s dimensione del campione
+	 * @param attributes numero di attributi
+	 * @param distance distanza tra cluster
+	 * @param depth profondità del dendrogramma
+	 * @param perExample costo stimato di una ricerca nel KDTree, in distanze
+	 * @return costo stimato in distanze
+	 */
+	private double miningCost(int s, int attributes, ClusterDistance distance, int depth, double perExample) {
+		double pairs = (double) s * (s - 1) / 2;
+		double levels = Math.min(depth, s) - 1;
+		return switch (HierachicalClusterMiner.autoMode(s, attributes, distance, depth)) {
+			// una sola scansione parallela delle coppie
+			case TOP_K -> pairs / parallelism;
+			// circa log2(s) turni, ognuno con una ricerca nel KDTree per componente
+			case BORUVKA -> s * perExample * Math.max(1, Math.log(s) / Math.log(2));
+			// costruzione della matrice, poi ad ogni livello la scansione delle coppie dei cluster attivi:
+			// la somma di a²/2 per a da s - levels + 1 a s
+			case DISTANCE_MATRIX -> pairs + (Math.pow(s, 3) - Math.pow(s - levels, 3)) / 6 / Math.max(1, attributes);
+			// ogni distanza è calcolata una sola volta
+			case SLINK -> pairs;
+			// le distanze iniziali e, ad ogni livello, quelle tra il cluster fuso e gli altri esempi
+			default -> pairs + (double) s * s * Math.log(s / Math.max(1, s - levels));
+		};
+	}
+
+	/**
+	 * metodo distancesPerMilli
+	 * misura quante distanze tra esempi di data si calcolano in un millisecondo
+	 */
+	private static double distancesPerMilli(Data data) {
+		int n = data.getNumberOfExample();
+		double sink = 0;
+		double millis = 0;
+		// la prima misura serve a compilare il ciclo, si usa la seconda
+		for (int round = 0; round < 2; round++) {
+			long start = System.nanoTime();
+			for (int p = 0; p < CALIBRATION_PAIRS; p++)
+				sink += data.distance(p % n, (int) ((p * 7919L + 1) % n));
+			millis = Math.max((System.nanoTime() - start) / 1e6, 1e-3);
+		}
+		// il risultato è usato perché il calcolo non venga eliminato
+		return CALIBRATION_PAIRS / millis + (sink < 0 ? 1 : 0);
+	}
+
+	/**
+	 * metodo sample
+	 * restituisce gli indici degli esempi del campione, in ordine crescente
+	 *
+	 * @param data dataset da campionare
+	 * @param size dimensione del campione, non maggiore del numero di esempi
+	 * @return indici degli esempi del campione
+	 */
+	int[] sample(Data data, int size) {
+		int n = data.getNumberOfExample();
+		Random random = new Random(seed);
+		boolean[] selected = new boolean[n];
+		if (strategy == SamplingStrategy.STRATIFIED) {
+			// gli strati vuoti sono compensati con esempi scelti a caso tra quelli non selezionati
+			int count = stratified(data, size, random, selected);
+			while (count < size) {
+				int t = random.nextInt(n);
+				if (!selected[t]) {
+					selected[t] = true;
+					count++;
+				}
+			}
+		} else {
+			// campione casuale semplice (algoritmo di Floyd)
+			for (int j = n - size; j < n; j++) {
+				int t = random.nextInt(j + 1);
+				if (selected[t])
+					selected[j] = true;
+				else
+					selected[t] = true;
+			}
+		}
+
+		int[] examples = new int[size];
+		int e = 0;
+		for (int i = 0; i < n && e < size; i++)
+			if (selected[i])
+				examples[e++] = i;
+		return examples;
+	}
+
+	/**
+	 * metodo stratified
+	 * divide gli esempi in size strati di uguale numerosità secondo l'attributo con varianza maggiore
+	 * e seleziona un esempio a caso da ogni strato; con valori ripetuti alcuni strati possono essere vuoti
+	 *
+	 * @return numero di esempi selezionati
+	 */
+	private static int stratified(Data data, int size, Random random, boolean[] selected) {
+		int n = data.getNumberOfExample();
+		int d = data.getNumberOfAttributes();
+		int attribute = 0;
+		double widest = -1;
+		for (int k = 0; k < d; k++) {
+			double sum = 0;
+			double squares = 0;
+			for (int i = 0; i < n; i++) {
+				double v = data.getValue(i, k);
+				sum += v;
+				squares += v * v;
+			}
+			double variance = squares / n - (sum / n) * (sum / n);
+			if (variance > widest) {
+				widest = variance;
+				attribute = k;
+			}
+		}
+
+		double[] sorted = new double[n];
+		for (int i = 0; i < n; i++)
+			sorted[i] = data.getValue(i, attribute);
+		Arrays.sort(sorted);
+		// lo strato t contiene i valori in [bounds[t], bounds[t+1])
+		double[] bounds = new double[size];
+		for (int t = 0; t < size; t++)
+			bounds[t] = sorted[(int) ((long) t * n / size)];
+
+		// un esempio per strato, scelto con probabilità uniforme (reservoir sampling)
+		int[] chosen = new int[size];
+		int[] seen = new int[size];
+		for (int i = 0; i < n; i++) {
+			int t = Arrays.binarySearch(bounds, data.getValue(i, attribute));
+			// con valori uguali ai limiti binarySearch restituisce uno strato qualsiasi tra quelli con quel limite
+			t = t >= 0 ? t : -t - 2;
+			if (random.nextInt(++seen[t]) == 0)
+				chosen[t] = i;
+		}
+
+		int count = 0;
+		for (int t = 0; t < size; t++) {
+			if (seen[t] > 0) {
+				selected[chosen[t]] = true;
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * metodo assign
+	 * restituisce, per ogni esempio di data, la posizione nel campione dell'esempio del campione più vicino;
+	 * gli esempi del campione sono assegnati a se stessi
+	 *
+	 * @param data dataset
+	 * @param examples indici degli esempi del campione, in ordine crescente
+	 * @param sample dataset degli esempi del campione, nello stesso ordine
+	 * @return posizione nel campione dell'esempio più vicino a ogni esempio
+	 */
+	int[] assign(Data data, int[] examples, Data sample) {
+		int n = data.getNumberOfExample();
+		int[] nearest = new int[n];
+		KDTree tree = new KDTree(sample);
+		AssignTask task = new AssignTask(data, examples, tree, nearest, 0, n, Math.max(1, n / (4 * parallelism)));
+		if (parallelism > 1)
+			MiningPool.get().invoke(task);
+		else
+			task.compute();
+		return nearest;
+	}
+
+	/**
+	 * classe AssignTask
+	 * assegna in parallelo gli esempi di un intervallo, dividendolo a metà finché non è abbastanza piccolo
+	 */
+	@SuppressWarnings("serial")
+	private static class AssignTask extends RecursiveAction {
+		private final Data data;
+		private final int[] examples;
+		private final KDTree tree;
+		private final int[] nearest;
+		private final int from;
+		private final int to;
+		private final int grain;
+
+		AssignTask(Data data, int[] examples, KDTree tree, int[] nearest, int from, int to, int grain) {
+			this.data = data;
+			this.examples = examples;
+			this.tree = tree;
+			this.nearest = nearest;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= grain) {
+				int e = Arrays.binarySearch(examples, from);
+				e = e >= 0 ? e : -e - 1;
+				for (int i = from; i < to; i++) {
+					if (e < examples.length && examples[e] == i)
+						nearest[i] = e++;
+					else
+						nearest[i] = tree.nearest(data, i);
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new AssignTask(data, examples, tree, nearest, from, mid, grain),
+					new AssignTask(data, examples, tree, nearest, mid, to, grain));
+		}
+	}
+}
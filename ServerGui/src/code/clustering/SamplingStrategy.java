@@ -0,0 +1,16 @@
+package code.clustering;
+
+/**
+ * Enumerativo SamplingStrategy
+ * modella il modo in cui la modalità SAMPLE sceglie il campione di esempi
+ *
+ */
+public enum SamplingStrategy {
+	/** campione casuale semplice, senza ripetizioni */
+	RANDOM,
+	/**
+	 * campione stratificato: gli esempi sono divisi in strati di uguale numerosità secondo l'attributo
+	 * con varianza maggiore e da ogni strato viene estratto un esempio, così il campione copre tutto l'intervallo
+	 */
+	STRATIFIED
+}
@@ -0,0 +1,193 @@
+package code.clustering;
+
+import code.data.Data;
+import code.data.InvalidSizeException;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * classe SlinkEngine
+ * calcola il dendrogramma per la distanza single-link con l'algoritmo SLINK di Sibson:
+ * gli esempi vengono inseriti uno alla volta aggiornando la rappresentazione a puntatori
+ * (pi, lambda) della gerarchia, dove lambda[j] è la distanza a cui l'esempio j smette
+ * di essere il più recente del proprio cluster e pi[j] l'esempio a cui si unisce.
+ * Le coppie (j, pi[j]) alla distanza lambda[j] sono gli archi di un albero ricoprente minimo degli esempi,
+ * da cui le fusioni sono ricostruite come in BoruvkaSingleLinkEngine: per ogni gruppo di archi alla
+ * stessa distanza le fusioni sono ordinate (ties) esattamente come in ClusterSet.mergeClosestClusters.
+ * Due esempi di componenti diverse sono confrontati per le parità solo quando le loro componenti vengono
+ * unite, quindi al più una volta: come l'intero calcolo, la ricerca delle parità richiede tempo O(n²)
+ * e memoria O(n); la matrice delle distanze non viene mai costruita
+ *
+ */
+class SlinkEngine {
+
+	/**
+	 * metodo mine
+	 * inserisce nel dendrogramma le fusioni dei livelli successivi al livello 0
+	 *
+	 * @param dendrogram dendrogramma inizializzato con il numero di esempi di data
+	 * @param data dataset su cui calcolare il clustering
+	 */
+	void mine(Dendrogram dendrogram, Data data) throws InvalidSizeException, InvalidClustersNumberException {
+		int n = data.getNumberOfExample();
+		int[] pi = new int[n];
+		double[] lambda = new double[n];
+		double[] m = new double[n];
+
+		for (int i = 0; i < n; i++) {
+			pi[i] = i;
+			lambda[i] = Double.POSITIVE_INFINITY;
+			for (int j = 0; j < i; j++)
+				m[j] = data.distance(j, i);
+
+			for (int j = 0; j < i; j++) {
+				if (lambda[j] >= m[j]) {
+					m[pi[j]] = Math.min(m[pi[j]], lambda[j]);
+					lambda[j] = m[j];
+					pi[j] = i;
+				} else {
+					m[pi[j]] = Math.min(m[pi[j]], m[j]);
+				}
+			}
+
+			for (int j = 0; j < i; j++)
+				if (lambda[j] >= lambda[pi[j]])
+					pi[j] = i;
+		}
+
+		MergeList treeEdges = new MergeList(Math.max(n - 1, 0));
+		for (int j = 0; j < n; j++)
+			if (pi[j] != j)
+				treeEdges.add(j, pi[j], lambda[j]);
+		treeEdges.sortByHeight();
+
+		int needed = dendrogram.getDepth() - 1;
+		if (treeEdges.getSize() < needed)
+			throw new InvalidClustersNumberException("Non ci sono abbastanza cluster da fondere");
+
+		int count = treeEdges.getSize();
+		int[] first = new int[count];
+		int[] second = new int[count];
+		for (int e = 0; e < count; e++) {
+			first[e] = treeEdges.getFirst(e);
+			second[e] = treeEdges.getSecond(e);
+		}
+
+		UnionFind sets = new UnionFind(n);
+		int[] minOf = new int[n];
+		for (int i = 0; i < n; i++)
+			minOf[i] = i;
+
+		int merges = 0;
+		for (int from = 0; from < count && merges < needed; ) {
+			double h = treeEdges.getHeight(from);
+			int to = from + 1;
+			while (to < count && treeEdges.getHeight(to) == h)
+				to++;
+
+			if (to - from == 1) {
+				merges += MergeList.mergeGroup(dendrogram, sets, minOf, first, second, from, to, h, needed - merges);
+			} else {
+				// le fusioni sono già nell'ordine di ClusterSet.mergeClosestClusters: applicate una alla volta
+				int[][] ties = ties(data, sets, first, second, from, to, h);
+				for (int e = 0; e < ties[0].length && merges < needed; e++)
+					merges += MergeList.mergeGroup(dendrogram, sets, minOf, ties[0], ties[1], e, e + 1, h, 1);
+			}
+			from = to;
+		}
+	}
+
+	/**
+	 * metodo ties
+	 * restituisce le fusioni tra le componenti toccate dagli archi dell'albero in posizione da from a to,
+	 * tutti a distanza h, nell'ordine di ClusterSet.mergeClosestClusters, che fonde per prima la coppia
+	 * di componenti a distanza h con gli esempi minimi più piccoli. In ogni gruppo di componenti collegate
+	 * dagli archi la componente con l'esempio minimo più piccolo assorbe quindi, una alla volta, la componente
+	 * a distanza h dalla parte già assorbita con l'esempio minimo più piccolo; i gruppi sono fusi
+	 * nell'ordine dei loro esempi minimi. Ogni coppia di componenti dello stesso gruppo è confrontata al più
+	 * una volta, fermandosi alla prima coppia di esempi a distanza h
+	 *
+	 * @return due array con gli esempi minimi delle due componenti di ogni fusione, in ordine di fusione
+	 */
+	private static int[][] ties(Data data, UnionFind sets, int[] first, int[] second, int from, int to, double h) {
+		int n = data.getNumberOfExample();
+		// numera le componenti toccate dal gruppo
+		int[] component = new int[n];
+		Arrays.fill(component, -1);
+		int components = 0;
+		for (int e = from; e < to; e++) {
+			int r1 = sets.find(first[e]);
+			int r2 = sets.find(second[e]);
+			if (component[r1] < 0)
+				component[r1] = components++;
+			if (component[r2] < 0)
+				component[r2] = components++;
+		}
+
+		// componenti che gli archi del gruppo collegano tra loro
+		UnionFind groups = new UnionFind(components);
+		for (int e = from; e < to; e++)
+			groups.union(component[sets.find(first[e])], component[sets.find(second[e])]);
+
+		// raggruppa gli esempi delle componenti toccate per componente, in ordine crescente
+		int[] label = new int[n];
+		int[] start = new int[components + 1];
+		for (int i = 0; i < n; i++) {
+			label[i] = component[sets.find(i)];
+			if (label[i] >= 0)
+				start[label[i] + 1]++;
+		}
+		for (int c = 0; c < components; c++)
+			start[c + 1] += start[c];
+		int[] members = new int[start[components]];
+		int[] next = Arrays.copyOf(start, components);
+		for (int i = 0; i < n; i++)
+			if (label[i] >= 0)
+				members[next[label[i]]++] = i;
+
+		// componenti in ordine di esempio minimo, il primo dei loro esempi
+		Integer[] order = new Integer[components];
+		for (int c = 0; c < components; c++)
+			order[c] = c;
+		Arrays.sort(order, (x, y) -> Integer.compare(members[start[x]], members[start[y]]));
+
+		int[][] pairs = {new int[components], new int[components]};
+		int size = 0;
+		boolean[] reached = new boolean[components]; // assorbita o in attesa di essere assorbita
+		PriorityQueue<Integer> frontier = new PriorityQueue<>((x, y) -> Integer.compare(members[start[x]], members[start[y]]));
+		for (int root : order) {
+			if (reached[root])
+				continue;
+			reached[root] = true;
+			int absorbed = root;
+			while (true) {
+				for (int c : order) {
+					if (!reached[c] && groups.find(c) == groups.find(root) && adjacent(data, members, start, absorbed, c, h)) {
+						reached[c] = true;
+						frontier.add(c);
+					}
+				}
+				if (frontier.isEmpty())
+					break;
+				absorbed = frontier.poll();
+				pairs[0][size] = members[start[root]];
+				pairs[1][size] = members[start[absorbed]];
+				size++;
+			}
+		}
+		return new int[][] {Arrays.copyOf(pairs[0], size), Arrays.copyOf(pairs[1], size)};
+	}
+
+	/**
+	 * metodo adjacent
+	 * indica se le componenti c1 e c2 hanno due esempi a distanza h
+	 */
+	private static boolean adjacent(Data data, int[] members, int[] start, int c1, int c2, double h) {
+		for (int x = start[c1]; x < start[c1 + 1]; x++)
+			for (int y = start[c2]; y < start[c2 + 1]; y++)
+				if (data.distance(members[x], members[y]) == h)
+					return true;
+		return false;
+	}
+}
@@ -0,0 +1,342 @@
+package code.clustering;
+
+import code.data.Data;
+import code.data.InvalidSizeException;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * classe TopKSingleLinkEngine
+ * calcola i primi livelli del dendrogramma per la distanza single-link quando la profondità
+ * è molto minore del numero di esempi: con una sola scansione parallela delle coppie di esempi
+ * vengono selezionate le k distanze più piccole, mantenute in heap limitati, e le fusioni
+ * sono ottenute applicando gli archi in ordine crescente con una union-find.
+ * Ogni blocco della scansione conserva circa 2k/blocchi archi: gli archi selezionati sono quindi
+ * certi solo fino al più piccolo tra gli archi massimi dei blocchi che ne hanno scartati.
+ * Se gli archi certi non bastano, perché molti chiudono cicli, perché un blocco contiene
+ * molte delle distanze minime o perché l'ultimo gruppo di distanze uguali è stato troncato,
+ * la scansione è ripetuta con k quadruplicato
+ *
+ */
+class TopKSingleLinkEngine {
+	/** byte occupati da un arco negli heap */
+	private static final int EDGE_BYTES = Double.BYTES + 2 * Integer.BYTES;
+
+	/** numero massimo di thread da impiegare nella scansione */
+	private final int parallelism;
+
+	/**
+	 * Costruttore
+	 *
+	 * @param parallelism numero massimo di thread da impiegare nella scansione
+	 */
+	TopKSingleLinkEngine(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * metodo mine
+	 * inserisce nel dendrogramma le fusioni dei livelli successivi al livello 0;
+	 * le fusioni, anche a parità di distanza, sono le stesse di ClusterSet.mergeClosestClusters
+	 *
+	 * @param dendrogram dendrogramma inizializzato con il numero di esempi di data
+	 * @param data dataset su cui calcolare il clustering
+	 */
+	void mine(Dendrogram dendrogram, Data data) throws InvalidSizeException, InvalidClustersNumberException {
+		int n = data.getNumberOfExample();
+		int needed = dendrogram.getDepth() - 1;
+		if (needed == 0)
+			return;
+
+		long pairs = (long) n * (n - 1) / 2;
+		int maxEdges = maxEdges();
+		long k = Math.max(16, 4L * needed);
+		while (true) {
+			int capacity = (int) Math.min(k, Math.min(pairs, maxEdges));
+			EdgeHeap edges = scan(data, capacity);
+			boolean complete = edges.count == pairs;
+			if (replay(dendrogram, edges, n, needed, complete))
+				return;
+			if (complete || capacity == maxEdges)
+				break;
+			k *= 4;
+		}
+
+		// troppi archi a distanza uguale: si calcola l'intera gerarchia dall'albero ricoprente minimo
+		dendrogram.init(n);
+		new BoruvkaSingleLinkEngine().mine(dendrogram, data);
+	}
+
+	/**
+	 * metodo maxEdges
+	 * restituisce il numero massimo di archi oltre il quale si ripiega su BoruvkaSingleLinkEngine:
+	 * gli heap della scansione, che insieme contengono al più circa quattro volte gli archi richiesti,
+	 * occupano così al più un ottavo della memoria disponibile per la JVM
+	 *
+	 * @return numero massimo di archi
+	 */
+	static int maxEdges() {
+		return (int) Math.min(Integer.MAX_VALUE - 8, Runtime.getRuntime().maxMemory() / 8 / (4L * EDGE_BYTES));
+	}
+
+	/**
+	 * metodo scan
+	 * restituisce al più capacity coppie di esempi più vicine, nell'ordine (distanza, i, j):
+	 * sono tutte le coppie fino all'ultima restituita, che può precedere la capacity-esima
+	 * se un blocco ha scartato coppie per limitare la memoria
+	 */
+	private EdgeHeap scan(Data data, int capacity) {
+		int n = data.getNumberOfExample();
+		long pairs = (long) n * (n - 1) / 2;
+		int blocks = (int) Math.max(1, Math.min(parallelism, pairs));
+
+		// righe bilanciate per numero di coppie: la riga i contiene n-1-i coppie
+		int[] bounds = new int[blocks + 1];
+		long done = 0;
+		int row = 0;
+		for (int b = 1; b < blocks; b++) {
+			long target = pairs * b / blocks;
+			while (row < n - 1 && done < target)
+				done += n - 1 - row++;
+			bounds[b] = row;
+		}
+		bounds[blocks] = n;
+
+		// ogni blocco conserva il doppio della sua quota di archi, ma non più di capacity
+		int blockCapacity = (int) Math.min(capacity, Math.max(16, 2 * ((capacity + (long) blocks - 1) / blocks)));
+		ScanTask task = new ScanTask(data, capacity, blockCapacity, bounds, 0, blocks);
+		EdgeHeap heap = blocks > 1 ? MiningPool.get().invoke(task) : task.compute();
+		heap.sort();
+		heap.truncate();
+		return heap;
+	}
+
+	/**
+	 * metodo replay
+	 * applica gli archi in ordine crescente, a gruppi di archi alla stessa distanza (MergeList.mergeGroup)
+	 *
+	 * @return false se gli archi non bastano a determinare con certezza tutte le fusioni richieste
+	 */
+	private static boolean replay(Dendrogram dendrogram, EdgeHeap edges, int n, int needed, boolean complete) {
+		dendrogram.init(n);
+		UnionFind sets = new UnionFind(n);
+		int[] minOf = new int[n];
+		for (int i = 0; i < n; i++)
+			minOf[i] = i;
+
+		int merges = 0;
+		double last = Double.NaN;
+		for (int from = 0; from < edges.count && merges < needed; ) {
+			int to = from + 1;
+			while (to < edges.count && edges.height[to] == edges.height[from])
+				to++;
+
+			int applied = MergeList.mergeGroup(dendrogram, sets, minOf, edges.first, edges.second,
+					from, to, edges.height[from], needed - merges);
+			if (applied > 0) {
+				merges += applied;
+				last = edges.height[from];
+			}
+			from = to;
+		}
+
+		if (complete)
+			return merges == needed;
+		// l'ultimo gruppo di archi a distanza uguale potrebbe essere incompleto
+		return merges == needed && last < edges.height[edges.count - 1];
+	}
+
+	/**
+	 * classe EdgeHeap
+	 * heap limitato che conserva le capacity coppie minime nell'ordine (distanza, i, j);
+	 * la radice è la coppia massima tra quelle conservate. Il limite (limitHeight, limitFirst, limitSecond)
+	 * è la coppia oltre la quale le coppie conservate possono essere incomplete, perché un heap
+	 * di blocco ne ha scartate di minori
+	 */
+	private static class EdgeHeap {
+		private final double[] height;
+		private final int[] first;
+		private final int[] second;
+		private int count = 0;
+		private double limitHeight = Double.POSITIVE_INFINITY;
+		private int limitFirst = Integer.MAX_VALUE;
+		private int limitSecond = Integer.MAX_VALUE;
+
+		EdgeHeap(int capacity) {
+			height = new double[capacity];
+			first = new int[capacity];
+			second = new int[capacity];
+		}
+
+		/**
+		 * metodo accepts
+		 * indica se la coppia (h, i, j) entrerebbe nello heap
+		 */
+		boolean accepts(double h, int i, int j) {
+			return count < height.length || less(h, i, j, 0);
+		}
+
+		/**
+		 * metodo offer
+		 * inserisce la coppia, sostituendo la massima se lo heap è pieno
+		 */
+		void offer(double h, int i, int j) {
+			if (count < height.length) {
+				set(count, h, i, j);
+				siftUp(count++);
+			} else if (less(h, i, j, 0)) {
+				set(0, h, i, j);
+				siftDown(0, count);
+			}
+		}
+
+		/**
+		 * metodo addAll
+		 * inserisce tutte le coppie di other e ne eredita il limite, se minore
+		 */
+		void addAll(EdgeHeap other) {
+			for (int e = 0; e < other.count; e++)
+				offer(other.height[e], other.first[e], other.second[e]);
+			limit(other.limitHeight, other.limitFirst, other.limitSecond);
+		}
+
+		/**
+		 * metodo limitToRoot
+		 * fissa il limite alla radice, la coppia massima conservata, perché sono state scartate coppie
+		 */
+		void limitToRoot() {
+			if (count > 0)
+				limit(height[0], first[0], second[0]);
+		}
+
+		/**
+		 * metodo truncate
+		 * scarta le coppie oltre il limite; va chiamato dopo sort
+		 */
+		void truncate() {
+			while (count > 0 && less(limitHeight, limitFirst, limitSecond, count - 1))
+				count--;
+		}
+
+		private void limit(double h, int i, int j) {
+			if (h < limitHeight || h == limitHeight && (i < limitFirst || i == limitFirst && j < limitSecond)) {
+				limitHeight = h;
+				limitFirst = i;
+				limitSecond = j;
+			}
+		}
+
+		/**
+		 * metodo sort
+		 * ordina le coppie in ordine crescente; dopo l'ordinamento lo heap non va più modificato
+		 */
+		void sort() {
+			for (int end = count - 1; end > 0; end--) {
+				swap(0, end);
+				siftDown(0, end);
+			}
+		}
+
+		private boolean less(double h, int i, int j, int e) {
+			if (h != height[e])
+				return h < height[e];
+			if (i != first[e])
+				return i < first[e];
+			return j < second[e];
+		}
+
+		private void set(int e, double h, int i, int j) {
+			height[e] = h;
+			first[e] = i;
+			second[e] = j;
+		}
+
+		private void swap(int a, int b) {
+			double h = height[a];
+			int i = first[a];
+			int j = second[a];
+			set(a, height[b], first[b], second[b]);
+			set(b, h, i, j);
+		}
+
+		private void siftUp(int e) {
+			while (e > 0) {
+				int parent = (e - 1) >>> 1;
+				if (!less(height[parent], first[parent], second[parent], e))
+					return;
+				swap(e, parent);
+				e = parent;
+			}
+		}
+
+		private void siftDown(int e, int size) {
+			while (true) {
+				int child = 2 * e + 1;
+				if (child >= size)
+					return;
+				if (child + 1 < size && less(height[child], first[child], second[child], child + 1))
+					child++;
+				if (!less(height[e], first[e], second[e], child))
+					return;
+				swap(e, child);
+				e = child;
+			}
+		}
+	}
+
+	/**
+	 * classe ScanTask
+	 * scandisce in parallelo blocchi di righe con circa lo stesso numero di coppie,
+	 * ciascuno con il proprio heap; gli heap parziali sono poi fusi
+	 */
+	@SuppressWarnings("serial")
+	private static class ScanTask extends RecursiveTask<EdgeHeap> {
+		private final Data data;
+		private final int capacity; // coppie conservate dopo la fusione degli heap
+		private final int blockCapacity; // coppie conservate dall'heap di un blocco
+		private final int[] bounds;
+		private final int fromBlock;
+		private final int toBlock;
+
+		ScanTask(Data data, int capacity, int blockCapacity, int[] bounds, int fromBlock, int toBlock) {
+			this.data = data;
+			this.capacity = capacity;
+			this.blockCapacity = blockCapacity;
+			this.bounds = bounds;
+			this.fromBlock = fromBlock;
+			this.toBlock = toBlock;
+		}
+
+		@Override
+		protected EdgeHeap compute() {
+			if (toBlock - fromBlock == 1) {
+				int n = data.getNumberOfExample();
+				EdgeHeap heap = new EdgeHeap(blockCapacity);
+				boolean dropped = false;
+				for (int i = bounds[fromBlock]; i < bounds[toBlock]; i++) {
+					for (int j = i + 1; j < n; j++) {
+						double d = data.distance(i, j);
+						if (heap.accepts(d, i, j)) {
+							dropped |= heap.count == blockCapacity;
+							heap.offer(d, i, j);
+						} else
+							dropped = true;
+					}
+				}
+				if (dropped)
+					heap.limitToRoot();
+				return heap;
+			}
+
+			int mid = (fromBlock + toBlock) >>> 1;
+			ScanTask left = new ScanTask(data, capacity, blockCapacity, bounds, fromBlock, mid);
+			left.fork();
+			EdgeHeap right = new ScanTask(data, capacity, blockCapacity, bounds, mid, toBlock).compute();
+			EdgeHeap leftHeap = left.join();
+			EdgeHeap result = new EdgeHeap((int) Math.min(capacity, (long) leftHeap.count + right.count));
+			result.addAll(leftHeap);
+			result.addAll(right);
+			return result;
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package code.clustering;
+
+/**
+ * classe UnionFind
+ * modella una partizione degli indici 0..n-1 in insiemi disgiunti,
+ * con compressione dei cammini e unione per dimensione
+ *
+ */
+class UnionFind {
+	private final int[] parent;
+	private final int[] size;
+
+	/**
+	 * Costruttore
+	 * crea n insiemi, ciascuno contenente un solo indice
+	 *
+	 * @param n numero di indici
+	 */
+	UnionFind(int n) {
+		parent = new int[n];
+		size = new int[n];
+		for (int i = 0; i < n; i++) {
+			parent[i] = i;
+			size[i] = 1;
+		}
+	}
+
+	/**
+	 * metodo find
+	 * restituisce il rappresentante dell'insieme che contiene i
+	 *
+	 * @param i indice da cercare
+	 * @return rappresentante dell'insieme di i
+	 */
+	int find(int i) {
+		int root = i;
+		while (parent[root] != root)
+			root = parent[root];
+		while (parent[i] != root) {
+			int next = parent[i];
+			parent[i] = root;
+			i = next;
+		}
+		return root;
+	}
+
+	/**
+	 * metodo union
+	 * unisce gli insiemi che contengono i e j
+	 *
+	 * @param i primo indice
+	 * @param j secondo indice
+	 * @return rappresentante dell'insieme unito, -1 se i e j erano già nello stesso insieme
+	 */
+	int union(int i, int j) {
+		int ri = find(i);
+		int rj = find(j);
+		if (ri == rj)
+			return -1;
+		if (size[ri] < size[rj]) {
+			int t = ri;
+			ri = rj;
+			rj = t;
+		}
+		parent[rj] = ri;
+		size[ri] += size[rj];
+		return ri;
+	}
+
+	/**
+	 * metodo getSize
+	 * restituisce la dimensione dell'insieme che contiene i
+	 *
+	 * @param i indice dell'insieme
+	 * @return numero di indici nell'insieme di i
+	 */
+	int getSize(int i) {
+		return size[find(i)];
+	}
+}
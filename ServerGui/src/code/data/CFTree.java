@@ -0,0 +1,404 @@
+package code.data;
+
+import java.util.Arrays;
+
+/**
+ * Classe CFTree
+ * Albero CF (Clustering Feature) dell'algoritmo BIRCH: riassume gli esempi di un Data in micro-cluster,
+ * ciascuno descritto da numero di esempi, somma vettoriale e somma dei quadrati delle norme
+ * (riferiti alla media del dataset, come in ClusterStatistics). Gli esempi sono inseriti uno alla volta
+ * nell'ordine della tabella: ognuno scende verso il micro-cluster con il centroide più vicino e vi viene
+ * assorbito se il raggio quadratico medio del micro-cluster resta entro la soglia, altrimenti ne apre uno nuovo.
+ * Se i micro-cluster superano il budget di memoria, l'albero è ricostruito con una soglia maggiore
+ * reinserendo i micro-cluster esistenti. Per ogni esempio è conservato il micro-cluster che lo contiene.
+ * Il tempo è circa lineare nel numero di esempi; la memoria dell'albero è limitata dal budget,
+ * a cui si aggiunge un int per esempio per la corrispondenza esempio - micro-cluster.
+ */
+public class CFTree {
+    /** numero massimo di figli di un nodo interno */
+    private static final int BRANCHING = 16;
+    /** numero massimo di micro-cluster in una foglia */
+    private static final int LEAF_CAPACITY = 16;
+    /** stima dell'occupazione di un elemento dell'albero, esclusa la somma vettoriale */
+    private static final long ENTRY_OVERHEAD = 64;
+
+    private final int d; // numero di attributi
+    private final long memoryBudget; // memoria massima occupata dagli elementi dell'albero, in byte
+    private double threshold; // raggio quadratico medio massimo di un micro-cluster
+    private Node root = new Node(true);
+    private int entries; // elementi presenti nell'albero, nelle foglie e nei nodi interni
+    private int leafEntries; // micro-cluster presenti nell'albero
+    /**
+     * ogni micro-cluster è identificato dall'esempio che lo ha aperto; parent[id] è il micro-cluster
+     * in cui id è stato assorbito durante una ricostruzione, id stesso se è ancora nell'albero
+     */
+    private final int[] parent;
+    private int lastId; // micro-cluster che contiene l'ultimo elemento inserito
+
+    private final int[] assignment; // micro-cluster di ogni esempio, numerati per esempio minimo
+    private final double[] centroids; // centroidi dei micro-cluster, d valori per micro-cluster
+    private final int numberOfMicroClusters;
+
+    /**
+     * Costruttore
+     * Costruisce l'albero inserendo gli esempi di data nell'ordine.
+     *
+     * @param data dataset da riassumere
+     * @param threshold raggio quadratico medio massimo iniziale di un micro-cluster, non negativo
+     * @param memoryBudget memoria massima occupata dagli elementi dell'albero, in byte
+     * @throws IllegalArgumentException se la soglia è negativa o il budget non è positivo
+     */
+    public CFTree(Data data, double threshold, long memoryBudget) {
+        if (!(threshold >= 0) || memoryBudget <= 0)
+            throw new IllegalArgumentException("Soglia o budget di memoria non validi");
+        this.d = data.getNumberOfAttributes();
+        this.threshold = threshold;
+        this.memoryBudget = memoryBudget;
+        int n = data.getNumberOfExample();
+        double[] mean = data.mean();
+        parent = new int[n];
+        int[] entryOf = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            Entry e = new Entry(i, d);
+            for (int k = 0; k < d; k++) {
+                double v = data.getValue(i, k) - mean[k];
+                e.linearSum[k] = v;
+                e.squaredSum += v * v;
+            }
+            parent[i] = i;
+            insert(e);
+            entryOf[i] = lastId;
+            while (overBudget() && leafEntries > 1)
+                rebuild();
+        }
+
+        // micro-cluster numerati nell'ordine del loro esempio minimo, come i cluster di un ClusterSet
+        assignment = new int[n];
+        int[] index = new int[n];
+        Arrays.fill(index, -1);
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            int id = find(entryOf[i]);
+            if (index[id] < 0)
+                index[id] = m++;
+            assignment[i] = index[id];
+        }
+        numberOfMicroClusters = m;
+
+        centroids = new double[m * d];
+        collectCentroids(root, index, mean);
+    }
+
+    /**
+     * Metodo getNumberOfMicroClusters
+     *
+     * @return numero di micro-cluster
+     */
+    public int getNumberOfMicroClusters() {
+        return numberOfMicroClusters;
+    }
+
+    /**
+     * Metodo getAssignment
+     * Restituisce il micro-cluster di ogni esempio; i micro-cluster sono numerati da 0
+     * nell'ordine del loro esempio minimo.
+     *
+     * @return micro-cluster di ogni esempio
+     */
+    public int[] getAssignment() {
+        return assignment.clone();
+    }
+
+    /**
+     * Metodo getCentroids
+     * Restituisce un dataset con il centroide di ogni micro-cluster, nell'ordine di getAssignment.
+     *
+     * @return centroidi dei micro-cluster
+     */
+    public Data getCentroids() {
+        return new Data(centroids.clone(), numberOfMicroClusters, d);
+    }
+
+    /**
+     * Metodo getThreshold
+     *
+     * @return soglia raggiunta al termine della costruzione, dopo le eventuali ricostruzioni
+     */
+    public double getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Metodo overBudget
+     * Indica se gli elementi dell'albero superano il budget di memoria.
+     */
+    private boolean overBudget() {
+        return entries * (ENTRY_OVERHEAD + 8L * d) > memoryBudget;
+    }
+
+    /**
+     * Metodo insert
+     * Inserisce e a partire dalla radice, dividendo la radice se necessario.
+     */
+    private void insert(Entry e) {
+        Node sibling = insert(root, e);
+        if (sibling != null) {
+            Node newRoot = new Node(false);
+            newRoot.add(summary(root));
+            newRoot.add(summary(sibling));
+            entries += 2;
+            root = newRoot;
+        }
+    }
+
+    /**
+     * Metodo insert
+     * Inserisce e nel sottoalbero di node, aggiornando le statistiche lungo il cammino.
+     *
+     * @return il nuovo nodo fratello se node è stato diviso, altrimenti null
+     */
+    private Node insert(Node node, Entry e) {
+        Entry closest = node.closest(e);
+        if (node.leaf) {
+            if (closest != null && closest.mergedRadius(e) <= threshold) {
+                closest.add(e);
+                parent[e.id] = closest.id;
+                lastId = closest.id;
+                return null;
+            }
+            node.add(e);
+            entries++;
+            leafEntries++;
+            lastId = e.id;
+            return node.count > LEAF_CAPACITY ? node.split() : null;
+        }
+
+        closest.add(e);
+        Node sibling = insert(closest.child, e);
+        if (sibling == null)
+            return null;
+        // il figlio è stato diviso: le statistiche delle due metà sono ricalcolate
+        node.set(node.indexOf(closest), summary(closest.child));
+        node.add(summary(sibling));
+        entries++;
+        return node.count > BRANCHING ? node.split() : null;
+    }
+
+    /**
+     * Metodo rebuild
+     * Aumenta la soglia e reinserisce i micro-cluster in un nuovo albero: quelli che ora rientrano
+     * nella soglia di un micro-cluster vicino vi sono assorbiti.
+     */
+    private void rebuild() {
+        Entry[] leaves = new Entry[leafEntries];
+        int[] count = {0};
+        double[] closestPair = {Double.POSITIVE_INFINITY};
+        collectLeaves(root, leaves, count, closestPair);
+
+        // la soglia almeno raddoppia e permette almeno la fusione più economica di una foglia;
+        // se nessuna foglia ha due micro-cluster distinti tutto confluisce in un unico micro-cluster
+        threshold = Math.max(2 * threshold, closestPair[0]);
+        root = new Node(true);
+        entries = 0;
+        leafEntries = 0;
+        for (Entry e : leaves)
+            insert(e);
+    }
+
+    /**
+     * Metodo collectLeaves
+     * Raccoglie i micro-cluster del sottoalbero di node e il minimo raggio positivo che si otterrebbe
+     * fondendo due micro-cluster della stessa foglia.
+     */
+    private static void collectLeaves(Node node, Entry[] leaves, int[] count, double[] closestPair) {
+        for (int c = 0; c < node.count; c++) {
+            Entry e = node.entries[c];
+            if (node.leaf) {
+                leaves[count[0]++] = e;
+                for (int o = c + 1; o < node.count; o++) {
+                    double radius = e.mergedRadius(node.entries[o]);
+                    if (radius > 0)
+                        closestPair[0] = Math.min(closestPair[0], radius);
+                }
+            } else {
+                collectLeaves(e.child, leaves, count, closestPair);
+            }
+        }
+    }
+
+    /**
+     * Metodo collectCentroids
+     * Scrive in centroids il centroide di ogni micro-cluster del sottoalbero di node.
+     */
+    private void collectCentroids(Node node, int[] index, double[] mean) {
+        for (int c = 0; c < node.count; c++) {
+            Entry e = node.entries[c];
+            if (node.leaf) {
+                int m = index[e.id];
+                for (int k = 0; k < d; k++)
+                    centroids[m * d + k] = mean[k] + e.linearSum[k] / e.size;
+            } else {
+                collectCentroids(e.child, index, mean);
+            }
+        }
+    }
+
+    /**
+     * Metodo summary
+     * Restituisce un elemento di nodo interno che riassume tutti gli elementi di node.
+     */
+    private Entry summary(Node node) {
+        Entry s = new Entry(-1, d);
+        s.child = node;
+        for (int c = 0; c < node.count; c++)
+            s.add(node.entries[c]);
+        return s;
+    }
+
+    /**
+     * Metodo find
+     * Restituisce il micro-cluster dell'albero in cui è confluito il micro-cluster id.
+     */
+    private int find(int id) {
+        int r = id;
+        while (parent[r] != r)
+            r = parent[r];
+        while (parent[id] != r) {
+            int next = parent[id];
+            parent[id] = r;
+            id = next;
+        }
+        return r;
+    }
+
+    /**
+     * Classe Entry
+     * Clustering Feature di un micro-cluster (nelle foglie) o di un sottoalbero (nei nodi interni).
+     */
+    private static class Entry {
+        final int id; // esempio che ha aperto il micro-cluster, -1 nei nodi interni
+        int size;
+        final double[] linearSum;
+        double squaredSum;
+        Node child; // sottoalbero riassunto, null nelle foglie
+
+        Entry(int id, int d) {
+            this.id = id;
+            this.linearSum = new double[d];
+            this.size = id >= 0 ? 1 : 0;
+        }
+
+        void add(Entry other) {
+            size += other.size;
+            for (int k = 0; k < linearSum.length; k++)
+                linearSum[k] += other.linearSum[k];
+            squaredSum += other.squaredSum;
+        }
+
+        /**
+         * raggio quadratico medio (distanza media al quadrato dal centroide) dell'unione con other
+         */
+        double mergedRadius(Entry other) {
+            int n = size + other.size;
+            double norm = 0;
+            for (int k = 0; k < linearSum.length; k++) {
+                double c = (linearSum[k] + other.linearSum[k]) / n;
+                norm += c * c;
+            }
+            return Math.max((squaredSum + other.squaredSum) / n - norm, 0);
+        }
+
+        /**
+         * distanza Euclidea (al quadrato) tra il centroide di questo elemento e quello di other
+         */
+        double centroidDistance(Entry other) {
+            double sum = 0;
+            for (int k = 0; k < linearSum.length; k++) {
+                double diff = linearSum[k] / size - other.linearSum[k] / other.size;
+                sum += diff * diff;
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * Classe Node
+     * Nodo dell'albero: una foglia contiene micro-cluster, un nodo interno i riassunti dei figli.
+     */
+    private static class Node {
+        final boolean leaf;
+        final Entry[] entries = new Entry[Math.max(BRANCHING, LEAF_CAPACITY) + 1];
+        int count;
+
+        Node(boolean leaf) {
+            this.leaf = leaf;
+        }
+
+        void add(Entry e) {
+            entries[count++] = e;
+        }
+
+        void set(int c, Entry e) {
+            entries[c] = e;
+        }
+
+        int indexOf(Entry e) {
+            for (int c = 0; c < count; c++)
+                if (entries[c] == e)
+                    return c;
+            return -1;
+        }
+
+        /**
+         * elemento con il centroide più vicino a quello di e, null se il nodo è vuoto
+         */
+        Entry closest(Entry e) {
+            Entry best = null;
+            double bestDistance = Double.POSITIVE_INFINITY;
+            for (int c = 0; c < count; c++) {
+                double dist = entries[c].centroidDistance(e);
+                if (best == null || dist < bestDistance) {
+                    best = entries[c];
+                    bestDistance = dist;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * divide il nodo: i due elementi più lontani restano in nodi diversi e ogni altro elemento
+         * va con il più vicino dei due; restituisce il nuovo nodo
+         */
+        Node split() {
+            int seed1 = 0;
+            int seed2 = 1;
+            double farthest = -1;
+            for (int a = 0; a < count; a++) {
+                for (int b = a + 1; b < count; b++) {
+                    double dist = entries[a].centroidDistance(entries[b]);
+                    if (dist > farthest) {
+                        farthest = dist;
+                        seed1 = a;
+                        seed2 = b;
+                    }
+                }
+            }
+
+            Entry[] old = Arrays.copyOf(entries, count);
+            Entry first = old[seed1];
+            Entry second = old[seed2];
+            Node sibling = new Node(leaf);
+            count = 0;
+            for (Entry e : old) {
+                if (e == first || (e != second && e.centroidDistance(first) <= e.centroidDistance(second)))
+                    add(e);
+                else
+                    sibling.add(e);
+            }
+            for (int c = count; c < entries.length; c++)
+                entries[c] = null;
+            return sibling;
+        }
+    }
+}
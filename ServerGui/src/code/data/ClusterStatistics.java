@@ -0,0 +1,165 @@
+package code.data;
+
+/**
+ * Classe ClusterStatistics
+ * Memorizza le statistiche sufficienti di un insieme di esempi: numero di esempi, somma vettoriale
+ * e somma dei quadrati delle norme. Per ridurre la cancellazione numerica i valori sono riferiti
+ * alla media del dataset anziché all'origine; le distanze tra esempi non dipendono dall'origine scelta.
+ * Il raggio, distanza massima di un esempio dal centroide, serve solo a calcolare limiti inferiori
+ * delle distanze tra esempi, con cui scartare coppie di cluster.
+ * Le istanze non sono modificabili e possono essere condivise tra thread.
+ */
+public final class ClusterStatistics {
+    /**
+     * tolleranza relativa, rispetto alle norme degli esempi, sottratta ai limiti inferiori:
+     * copre gli arrotondamenti di somme, centroidi e raggi, così un limite non supera mai
+     * la distanza calcolata dal kernel
+     */
+    private static final double SLACK = 1e-9;
+
+    private final int size; // numero di esempi
+    private final double[] linearSum; // somma degli esempi, riferiti alla media del dataset
+    private final double squaredSum; // somma dei quadrati delle norme degli esempi, riferiti alla media del dataset
+    private final double radius; // limite superiore della distanza Euclidea (non al quadrato) di un esempio dal centroide
+
+    /**
+     * Costruttore
+     *
+     * @param size numero di esempi
+     * @param linearSum somma degli esempi
+     * @param squaredSum somma dei quadrati delle norme degli esempi
+     * @param radius limite superiore della distanza di un esempio dal centroide
+     */
+    private ClusterStatistics(int size, double[] linearSum, double squaredSum, double radius) {
+        this.size = size;
+        this.linearSum = linearSum;
+        this.squaredSum = squaredSum;
+        this.radius = radius;
+    }
+
+    /**
+     * Metodo of
+     * Calcola le statistiche degli esempi di data con gli indici indicati.
+     *
+     * @param data dataset
+     * @param examples indici degli esempi, senza ripetizioni
+     * @return statistiche degli esempi
+     */
+    public static ClusterStatistics of(Data data, int[] examples) {
+        int d = data.getNumberOfAttributes();
+        double[] mean = data.mean();
+        double[] linearSum = new double[d];
+        double squaredSum = 0;
+        for (int id : examples) {
+            for (int k = 0; k < d; k++) {
+                double v = data.getValue(id, k) - mean[k];
+                linearSum[k] += v;
+                squaredSum += v * v;
+            }
+        }
+
+        double radius = 0;
+        for (int id : examples) {
+            double sum = 0;
+            for (int k = 0; k < d; k++) {
+                double diff = data.getValue(id, k) - mean[k] - linearSum[k] / examples.length;
+                sum += diff * diff;
+            }
+            radius = Math.max(radius, sum);
+        }
+        return new ClusterStatistics(examples.length, linearSum, squaredSum, Math.sqrt(radius));
+    }
+
+    /**
+     * Metodo getSize
+     *
+     * @return numero di esempi
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Metodo averageDistance
+     * Restituisce la media delle distanze Euclidee (al quadrato) tra gli esempi di questo insieme
+     * e quelli di other, pari a media(‖a‖²) + media(‖b‖²) - 2·μa·μb, in tempo proporzionale al numero di attributi.
+     * Rispetto alla media calcolata coppia per coppia l'errore assoluto è dell'ordine di
+     * d·1e-16 volte media(‖a‖²) + media(‖b‖²) (norme riferite alla media del dataset);
+     * un risultato negativo dovuto agli arrotondamenti è riportato a 0.
+     *
+     * @param other statistiche dell'altro insieme
+     * @return distanza media tra gli esempi dei due insiemi
+     */
+    public double averageDistance(ClusterStatistics other) {
+        double dot = 0;
+        for (int k = 0; k < linearSum.length; k++)
+            dot += linearSum[k] * other.linearSum[k];
+        double d = squaredSum / size + other.squaredSum / other.size - 2 * dot / ((double) size * other.size);
+        return Math.max(d, 0);
+    }
+
+    /**
+     * Metodo centroidDistance
+     * Restituisce la distanza Euclidea (al quadrato) tra il centroide di questo insieme e quello di other.
+     *
+     * @param other statistiche dell'altro insieme
+     * @return distanza tra i centroidi
+     */
+    public double centroidDistance(ClusterStatistics other) {
+        double sum = 0;
+        for (int k = 0; k < linearSum.length; k++) {
+            double diff = linearSum[k] / size - other.linearSum[k] / other.size;
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    /**
+     * Metodo minimumDistanceLowerBound
+     * Restituisce un limite inferiore della minima distanza Euclidea (al quadrato) tra un esempio
+     * di questo insieme e uno di other: la distanza tra i centroidi meno i due raggi, se positiva.
+     *
+     * @param other statistiche dell'altro insieme
+     * @return limite inferiore della distanza single-link
+     */
+    public double minimumDistanceLowerBound(ClusterStatistics other) {
+        double gap = Math.sqrt(centroidDistance(other)) - radius - other.radius
+                - SLACK * (Math.sqrt(squaredSum) + Math.sqrt(other.squaredSum));
+        return gap > 0 ? gap * gap : 0;
+    }
+
+    /**
+     * Metodo maximumDistanceLowerBound
+     * Restituisce un limite inferiore della massima distanza Euclidea (al quadrato) tra un esempio
+     * di questo insieme e uno di other: la distanza tra i centroidi, perché la massima distanza
+     * non è minore della media, che a sua volta non è minore della distanza tra i centroidi.
+     *
+     * @param other statistiche dell'altro insieme
+     * @return limite inferiore della distanza complete-link
+     */
+    public double maximumDistanceLowerBound(ClusterStatistics other) {
+        double gap = Math.sqrt(centroidDistance(other)) - SLACK * (Math.sqrt(squaredSum) + Math.sqrt(other.squaredSum));
+        return gap > 0 ? gap * gap : 0;
+    }
+
+    /**
+     * Metodo exampleDistanceLowerBound
+     * Restituisce un limite inferiore della minima distanza Euclidea (al quadrato) tra l'esempio
+     * di data con indice example e gli esempi di questo insieme, che devono appartenere a data.
+     *
+     * @param data dataset
+     * @param example indice dell'esempio
+     * @return limite inferiore della distanza dell'esempio dall'insieme
+     */
+    public double exampleDistanceLowerBound(Data data, int example) {
+        double[] mean = data.mean();
+        double sum = 0;
+        for (int k = 0; k < linearSum.length; k++) {
+            double diff = data.getValue(example, k) - mean[k] - linearSum[k] / size;
+            sum += diff * diff;
+        }
+        double distance = Math.sqrt(sum);
+        double gap = distance - radius - SLACK * (distance + Math.sqrt(squaredSum));
+        return gap > 0 ? gap * gap : 0;
+    }
+}
@@ -0,0 +1,103 @@
+package code.data;
+
+/**
+ * Classe CondensedDistanceMatrix
+ * Memorizza in un unico array la parte triangolare superiore della matrice delle distanze,
+ * riga per riga: n(n-1)/2 valori invece degli n² di una matrice double[n][n].
+ * In precisione singola i valori sono float e la memoria occupata si dimezza ancora,
+ * al prezzo di un errore relativo di circa 6e-8 su ogni distanza.
+ */
+public class CondensedDistanceMatrix implements DistanceMatrix {
+    /** massimo numero di esempi per cui la matrice condensata è indicizzabile con un array */
+    public static final int MAX_EXAMPLES = 65535;
+
+    private final int numberOfExamples; // numero di esempi
+    private final double[] values; // distanze in precisione doppia, null in precisione singola
+    private final float[] floatValues; // distanze in precisione singola, null in precisione doppia
+
+    /**
+     * Costruttore
+     * Calcola le distanze tra tutte le coppie di esempi di data.
+     *
+     * @param data dataset di cui calcolare le distanze
+     * @param singlePrecision true per memorizzare le distanze come float
+     */
+    public CondensedDistanceMatrix(Data data, boolean singlePrecision) {
+        int n = data.getNumberOfExample();
+        int length = checkedLength(n);
+        numberOfExamples = n;
+        values = singlePrecision ? null : new double[length];
+        floatValues = singlePrecision ? new float[length] : null;
+
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (singlePrecision)
+                    floatValues[k++] = (float) data.exampleDistance(i, j);
+                else
+                    values[k++] = data.exampleDistance(i, j);
+            }
+        }
+    }
+
+    /**
+     * Metodo bytes
+     * Restituisce la memoria occupata dalla matrice condensata di n esempi.
+     *
+     * @param n numero di esempi
+     * @param singlePrecision true per distanze memorizzate come float
+     * @return numero di byte dei valori della matrice
+     */
+    public static long bytes(long n, boolean singlePrecision) {
+        return n * (n - 1) / 2 * (singlePrecision ? Float.BYTES : Double.BYTES);
+    }
+
+    /**
+     * Metodo index
+     * Restituisce la posizione della coppia (i,j), con i minore di j, nella matrice condensata.
+     *
+     * @param n numero di esempi
+     * @param i primo indice
+     * @param j secondo indice
+     * @return posizione della coppia nella matrice condensata
+     */
+    public static int index(int n, int i, int j) {
+        return (int) ((long) i * (2L * n - i - 1) / 2 + (j - i - 1));
+    }
+
+    /**
+     * Metodo checkedLength
+     * Restituisce il numero di coppie di n esempi, verificando che sia indicizzabile con un array.
+     *
+     * @param n numero di esempi
+     * @return n(n-1)/2
+     */
+    static int checkedLength(int n) {
+        if (n > MAX_EXAMPLES)
+            throw new IllegalArgumentException("Troppi esempi per la matrice delle distanze: " + n + "\n");
+        return (int) ((long) n * (n - 1) / 2);
+    }
+
+    public int getNumberOfExamples() {
+        return numberOfExamples;
+    }
+
+    public double get(int i, int j) {
+        if (i == j)
+            return 0;
+        int k = i < j ? index(numberOfExamples, i, j) : index(numberOfExamples, j, i);
+        return values != null ? values[k] : floatValues[k];
+    }
+
+    public boolean isSinglePrecision() {
+        return values == null;
+    }
+
+    public void set(int i, int j, double value) {
+        int k = i < j ? index(numberOfExamples, i, j) : index(numberOfExamples, j, i);
+        if (values != null)
+            values[k] = value;
+        else
+            floatValues[k] = (float) value;
+    }
+}
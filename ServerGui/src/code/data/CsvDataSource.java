@@ -0,0 +1,132 @@
+package code.data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Classe CsvDataSource
+ * Legge gli esempi da un file di testo con un esempio per riga e i valori separati da separator,
+ * una riga alla volta, copiandoli in un DataBuilder. La prima riga non vuota è trattata come intestazione
+ * se contiene valori non numerici; le righe vuote sono ignorate. Come in JdbcDataSource,
+ * le righe duplicate sono eliminate e resta la prima.
+ */
+public class CsvDataSource implements DataSource {
+    /** dimensione, in caratteri, del buffer di lettura */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path file; // file da leggere
+    private final char separator; // separatore dei valori
+
+    /**
+     * Costruttore
+     *
+     * @param file file da leggere
+     * @param separator separatore dei valori di una riga
+     */
+    public CsvDataSource(Path file, char separator) {
+        this.file = file;
+        this.separator = separator;
+    }
+
+    /**
+     * Costruttore
+     * I valori sono separati da virgole.
+     *
+     * @param file file da leggere
+     */
+    public CsvDataSource(Path file) {
+        this(file, ',');
+    }
+
+    /**
+     * Metodo getName
+     *
+     * @return descrizione del file
+     */
+    @Override
+    public String getName() {
+        return "file CSV " + file;
+    }
+
+    /**
+     * Metodo load
+     * Legge gli esempi del file.
+     *
+     * @return dataset letto
+     * @throws NoDataException se il file non può essere letto, è vuoto, contiene valori non numerici
+     *                         o righe con un numero di valori diverso dalla prima
+     */
+    @Override
+    public Data load() throws NoDataException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            DataBuilder builder = null;
+            double[] values = null;
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank())
+                    continue;
+                if (values == null) {
+                    values = new double[count(line)];
+                    builder = new DataBuilder(values.length, true);
+                    if (!parse(line, values, lineNumber, true))
+                        continue; // intestazione
+                } else {
+                    parse(line, values, lineNumber, false);
+                }
+                builder.addExample(values);
+            }
+            if (builder == null || builder.getNumberOfExamples() == 0)
+                throw new NoDataException("Il file " + file + " è vuoto.\n");
+            return builder.build();
+        } catch (IOException e) {
+            throw new NoDataException("Errore nella lettura del file " + file + ": " + e.getMessage() + "\n");
+        }
+    }
+
+    /**
+     * Metodo count
+     * Restituisce il numero di valori della riga.
+     */
+    private int count(String line) {
+        int count = 1;
+        for (int i = line.indexOf(separator); i >= 0; i = line.indexOf(separator, i + 1))
+            count++;
+        return count;
+    }
+
+    /**
+     * Metodo parse
+     * Copia in values i valori della riga.
+     *
+     * @param header true se la riga può essere un'intestazione
+     * @return false se la riga è un'intestazione
+     * @throws NoDataException se la riga contiene un valore non numerico o un numero di valori errato
+     */
+    private boolean parse(String line, double[] values, long lineNumber, boolean header) throws NoDataException {
+        int start = 0;
+        for (int k = 0; k < values.length; k++) {
+            int end = line.indexOf(separator, start);
+            if (k == values.length - 1 ? end >= 0 : end < 0)
+                throw new NoDataException("Numero di valori errato alla riga " + lineNumber + " del file " + file + "\n");
+            if (end < 0)
+                end = line.length();
+            String token = line.substring(start, end).strip();
+            try {
+                values[k] = Double.parseDouble(token);
+            } catch (NumberFormatException e) {
+                if (header)
+                    return false;
+                throw new NoDataException("Attributo non numerico trovato alla riga " + lineNumber + " del file " + file + ": " + token + "\n");
+            }
+            start = end + 1;
+        }
+        return true;
+    }
+}
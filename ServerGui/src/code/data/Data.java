@@ -1,21 +1,25 @@
 package code.data;
 
-import code.database.*;
-
-import java.sql.SQLException;
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Iterator;
-import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * Classe Data
  * Avvalora un oggetto data predefinito (fornito dal docente)
  * oppure leggendo i suoi esempi dalla tabella con nome tableName nel database.
+ * Gli esempi sono memorizzati riga per riga in un unico array di double:
+ * i valori dell'esempio i occupano le posizioni da i*numberOfAttributes a (i+1)*numberOfAttributes-1
  *
  * @throws NoDataException se la tabella è vuota.
  */
 public class Data {
-    private List<Example> data = new ArrayList<>(); // rappresenta il dataset
+    private double[] values; // valori degli esempi, memorizzati riga per riga
+    private int numberOfExamples; // numero di esempi nel dataset
+    private int numberOfAttributes; // numero di valori di ogni esempio, passo tra due righe
+    private volatile double[] mean; // media degli esempi, calcolata alla prima richiesta
 
     /**
      * Costruttore
@@ -25,20 +29,28 @@ public class Data {
      * @throws NoDataException se la tabella è vuota.
      */
     public Data(String tableName) throws NoDataException {
-        DbAccess dbAccess = new DbAccess();
-        try {
-            TableData tableData = new TableData(dbAccess);
-            List<Example> examples = tableData.getDistinctTransazioni(tableName);
-            this.data.addAll(examples);
-        } catch (DatabaseConnectionException e) {
-            throw new NoDataException("Errore di connessione al database: " + e.getMessage() + "\n");
-        } catch (EmptySetException e) {
-            throw new NoDataException("La tabella " + tableName + " è vuota: " + e.getMessage() + "\n");
-        } catch (MissingNumberException e) {
-            throw new NoDataException("Eccezione durante l'elaborazione dei dati: " + e.getMessage() + "\n");
-        } catch (SQLException e) {
-            throw new NoDataException("Errore SQL durante il recupero dei dati dalla tabella: " + e.getMessage() + "\n");
-        }
+        // i valori letti da JdbcDataSource sono condivisi, non copiati
+        Data source = new JdbcDataSource(tableName).load();
+        values = source.values;
+        numberOfExamples = source.numberOfExamples;
+        numberOfAttributes = source.numberOfAttributes;
+    }
+
+    /**
+     * Costruttore
+     * Crea un'istanza di classe Data sugli esempi memorizzati riga per riga in values;
+     * l'array non viene copiato.
+     *
+     * @param values valori degli esempi, numberOfExamples righe di numberOfAttributes valori
+     * @param numberOfExamples numero di esempi
+     * @param numberOfAttributes numero di valori di ogni esempio
+     */
+    public Data(double[] values, int numberOfExamples, int numberOfAttributes) {
+        if (numberOfExamples < 0 || numberOfAttributes < 0 || values.length < (long) numberOfExamples * numberOfAttributes)
+            throw new IllegalArgumentException("Dimensioni del dataset non valide\n");
+        this.values = values;
+        this.numberOfExamples = numberOfExamples;
+        this.numberOfAttributes = numberOfAttributes;
     }
 
     /**
@@ -48,18 +60,63 @@ public class Data {
      * @return numero di esempi nel dataset
      */
     public int getNumberOfExample() {
-        return data.size();
+        return numberOfExamples;
+    }
+
+    /**
+     * Metodo getNumberOfAttributes
+     * Restituisce il numero di valori di ogni esempio.
+     *
+     * @return numero di valori di ogni esempio
+     */
+    public int getNumberOfAttributes() {
+        return numberOfAttributes;
+    }
+
+    /**
+     * Metodo getValue
+     * Restituisce il valore in posizione attributeIndex dell'esempio exampleIndex.
+     *
+     * @param exampleIndex indice dell'esempio
+     * @param attributeIndex indice del valore nell'esempio
+     * @return valore richiesto
+     */
+    public double getValue(int exampleIndex, int attributeIndex) {
+        return values[exampleIndex * numberOfAttributes + attributeIndex];
+    }
+
+    /**
+     * Metodo mean
+     * Restituisce la media degli esempi, calcolata alla prima richiesta; l'array non va modificato.
+     *
+     * @return media degli esempi
+     */
+    double[] mean() {
+        double[] m = mean;
+        if (m == null) {
+            m = new double[numberOfAttributes];
+            for (int i = 0; i < numberOfExamples; i++)
+                for (int k = 0; k < numberOfAttributes; k++)
+                    m[k] += values[i * numberOfAttributes + k];
+            for (int k = 0; k < numberOfAttributes && numberOfExamples > 0; k++)
+                m[k] /= numberOfExamples;
+            mean = m;
+        }
+        return m;
     }
 
     /**
      * Metodo getExample
-     * Restituisce l'elemento dell'istanza data in posizione exampleIndex.
+     * Restituisce l'elemento dell'istanza data in posizione exampleIndex,
+     * come vista sui valori del dataset che non ne copia il contenuto.
      *
      * @param exampleIndex indice dell'elemento da restituire
      * @return elemento in posizione exampleIndex
      */
     public Example getExample(int exampleIndex) {
-        return data.get(exampleIndex);
+        if (exampleIndex < 0 || exampleIndex >= numberOfExamples)
+            throw new IndexOutOfBoundsException(exampleIndex);
+        return new Example(values, exampleIndex * numberOfAttributes, numberOfAttributes);
     }
 
     /**
@@ -69,27 +126,145 @@ public class Data {
      * @return iteratore per scorrere gli elementi di data
      */
     public Iterator<Example> iterator() {
-        return data.iterator();
+        return new Iterator<Example>() {
+            private int next = 0;
+
+            public boolean hasNext() {
+                return next < numberOfExamples;
+            }
+
+            public Example next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return getExample(next++);
+            }
+        };
+    }
+
+    /**
+     * Metodo distance
+     * Restituisce la distanza Euclidea (al quadrato) tra gli esempi in posizione i e j,
+     * calcolata direttamente sui valori del dataset senza creare oggetti Example.
+     *
+     * @param i indice del primo esempio
+     * @param j indice del secondo esempio
+     * @return distanza tra i due esempi
+     */
+    public double distance(int i, int j) {
+        return exampleDistance(i, j);
+    }
+
+    /**
+     * Metodo getDistanceKernel
+     * Restituisce la descrizione del kernel usato per le distanze tra esempi, scelto alla prima chiamata:
+     * il server la stampa all'avvio.
+     *
+     * @return descrizione del kernel delle distanze
+     */
+    public static String getDistanceKernel() {
+        return DistanceKernel.description();
+    }
+
+    /**
+     * Metodo exampleDistance
+     * Calcola la distanza Euclidea (al quadrato) tra gli esempi in posizione i e j.
+     *
+     * @param i indice del primo esempio
+     * @param j indice del secondo esempio
+     * @return distanza tra i due esempi
+     */
+    double exampleDistance(int i, int j) {
+        return DistanceKernel.get().squaredDistance(values, i * numberOfAttributes, values, j * numberOfAttributes, numberOfAttributes);
+    }
+
+    /**
+     * Metodo exampleDistance
+     * Calcola la distanza Euclidea (al quadrato) tra l'esempio in posizione i e l'esempio in posizione j
+     * di other, che deve avere lo stesso numero di attributi.
+     *
+     * @param i indice dell'esempio di questo dataset
+     * @param other altro dataset
+     * @param j indice dell'esempio di other
+     * @return distanza tra i due esempi
+     */
+    double exampleDistance(int i, Data other, int j) {
+        return DistanceKernel.get().squaredDistance(values, i * numberOfAttributes, other.values, j * numberOfAttributes, numberOfAttributes);
+    }
+
+    /**
+     * Metodo subset
+     * Restituisce un nuovo dataset con una copia degli esempi indicati, nell'ordine dato.
+     *
+     * @param examples indici degli esempi da copiare
+     * @return dataset con gli esempi indicati
+     * @throws IndexOutOfBoundsException se un indice non è valido
+     */
+    public Data subset(int[] examples) {
+        double[] copy = new double[examples.length * numberOfAttributes];
+        for (int e = 0; e < examples.length; e++) {
+            if (examples[e] < 0 || examples[e] >= numberOfExamples)
+                throw new IndexOutOfBoundsException("Indice esempio non valido: " + examples[e]);
+            System.arraycopy(values, examples[e] * numberOfAttributes, copy, e * numberOfAttributes, numberOfAttributes);
+        }
+        return new Data(copy, examples.length, numberOfAttributes);
     }
 
     /**
      * Metodo distance
-     * Restituisce la matrice triangolare superiore delle distanze Euclidee
-     * calcolate tra gli esempi memorizzati in data.
+     * Calcola la matrice delle distanze Euclidee tra gli esempi memorizzati in data,
+     * in precisione doppia salvo che sia impostata la proprietà di sistema hclus.singlePrecision.
      *
      * @return matrice delle distanze tra gli esempi del dataset
      */
-    public double[][] distance() throws InvalidSizeException {
-        double[][] dist = new double[data.size()][data.size()];
-        for (int i = 0; i < data.size(); i++) {
-            dist[i][i] = 0;
-            for (int j = i + 1; j < data.size(); j++) {
-                double d = data.get(i).distance(data.get(j));
-                dist[i][j] = d;
-                dist[j][i] = 0; // Riflessione nella metà inferiore
-            }
+    public DistanceMatrix distance() {
+        return distance(Boolean.getBoolean("hclus.singlePrecision"));
+    }
+
+    /**
+     * Metodo distance
+     * Calcola la matrice delle distanze Euclidee tra gli esempi memorizzati in data.
+     * Ogni chiamata restituisce una nuova matrice, che appartiene al chiamante (ad esempio a un singolo
+     * calcolo del dendrogramma) e non è memorizzata in data: il dataset, condiviso da DatasetCache
+     * tra le sessioni, non cambia quindi dimensione, e distance(i, j) resta esatta anche quando
+     * la matrice è in precisione singola.
+     * Se la matrice occuperebbe più di metà della memoria disponibile per la JVM viene memorizzata
+     * in un file temporaneo mappato in memoria, nella cartella indicata dalla proprietà hclus.matrixDir.
+     *
+     * @param singlePrecision true per memorizzare le distanze come float
+     * @return matrice delle distanze tra gli esempi del dataset
+     * @throws UncheckedIOException se il file della matrice non può essere creato
+     */
+    public DistanceMatrix distance(boolean singlePrecision) {
+        if (numberOfExamples <= CondensedDistanceMatrix.MAX_EXAMPLES
+                && CondensedDistanceMatrix.bytes(numberOfExamples, singlePrecision) <= Runtime.getRuntime().maxMemory() / 2)
+            return new CondensedDistanceMatrix(this, singlePrecision);
+
+        String directory = System.getProperty("hclus.matrixDir");
+        try {
+            return new MappedDistanceMatrix(this, singlePrecision, directory == null ? null : new File(directory));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossibile creare il file della matrice delle distanze: " + e.getMessage(), e);
         }
-        return dist;
+    }
+
+    /**
+     * Metodo values
+     * Restituisce i valori degli esempi, memorizzati riga per riga; l'array non va modificato.
+     *
+     * @return valori degli esempi
+     */
+    double[] values() {
+        return values;
+    }
+
+    /**
+     * Metodo getHeapFootprint
+     * Restituisce la memoria heap occupata dai valori degli esempi.
+     *
+     * @return numero approssimato di byte occupati nello heap
+     */
+    long getHeapFootprint() {
+        return (long) values.length * Double.BYTES;
     }
 
     /**
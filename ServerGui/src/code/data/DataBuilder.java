@@ -0,0 +1,222 @@
+package code.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Classe DataBuilder
+ * Raccoglie gli esempi di un dataset durante la lettura, copiandoli riga per riga
+ * in blocchi di double di dimensione fissa, riuniti in un unico array, la memoria di un oggetto Data,
+ * solo alla fine: a differenza di un array raddoppiato a ogni riempimento, durante la lettura
+ * non servono copie dei valori già letti e al termine la memoria occupata è al più il doppio dei dati.
+ * Facoltativamente scarta gli esempi duplicati con una tabella hash a indirizzamento aperto
+ * che fa riferimento ai valori nei blocchi, senza copiarli.
+ */
+public class DataBuilder {
+    /** numero di valori di un blocco */
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    private final int numberOfAttributes; // numero di valori di ogni esempio
+    private final List<double[]> chunks = new ArrayList<>(); // blocchi pieni
+    private double[] current; // blocco in riempimento
+    private int used; // valori scritti nel blocco in riempimento
+    private int numberOfExamples; // numero di esempi raccolti
+    private long[] index; // posizioni (blocco, offset) + 1 degli esempi raccolti, per hash; null se i duplicati sono ammessi
+    private int[] hashes; // hash degli esempi in index
+
+    /**
+     * Costruttore
+     *
+     * @param numberOfAttributes numero di valori di ogni esempio
+     */
+    public DataBuilder(int numberOfAttributes) {
+        this(numberOfAttributes, false);
+    }
+
+    /**
+     * Costruttore
+     * Con distinct, gli esempi uguali a uno già raccolto sono scartati: i valori sono confrontati
+     * come in SQL, quindi 0.0 e -0.0 sono uguali.
+     *
+     * @param numberOfAttributes numero di valori di ogni esempio
+     * @param distinct true per scartare gli esempi duplicati
+     */
+    public DataBuilder(int numberOfAttributes, boolean distinct) {
+        this.numberOfAttributes = numberOfAttributes;
+        current = new double[Math.max(CHUNK_SIZE, numberOfAttributes)];
+        if (distinct) {
+            index = new long[1024];
+            hashes = new int[1024];
+        }
+    }
+
+    /**
+     * Metodo addExample
+     * Copia in coda i valori di un esempio; l'array row può essere riutilizzato dal chiamante.
+     *
+     * @param row valori dell'esempio, almeno numberOfAttributes
+     * @return false se l'esempio è stato scartato perché duplicato
+     */
+    public boolean addExample(double[] row) {
+        int hash = 0;
+        int slot = -1;
+        if (index != null) {
+            hash = hash(row);
+            slot = find(row, hash);
+            if (index[slot] != 0)
+                return false;
+        }
+
+        if ((long) (numberOfExamples + 1) * numberOfAttributes > Integer.MAX_VALUE - 8)
+            throw new OutOfMemoryError("Dataset troppo grande per un array di double");
+        // una riga non è mai divisa tra due blocchi
+        if (used + numberOfAttributes > current.length) {
+            chunks.add(used == current.length ? current : Arrays.copyOf(current, used));
+            current = new double[current.length];
+            used = 0;
+        }
+        System.arraycopy(row, 0, current, used, numberOfAttributes);
+        if (index != null) {
+            index[slot] = ((long) chunks.size() << 32 | used) + 1;
+            hashes[slot] = hash;
+            if (2 * (numberOfExamples + 1) > index.length)
+                rehash();
+        }
+        used += numberOfAttributes;
+        numberOfExamples++;
+        return true;
+    }
+
+    /**
+     * Metodo append
+     * Accoda gli esempi di other, senza copiarne i valori; gli esempi accodati non sono confrontati
+     * con quelli già raccolti. Dopo la chiamata other non va più usato.
+     *
+     * @param other builder con lo stesso numero di attributi
+     */
+    public void append(DataBuilder other) {
+        if (other.numberOfAttributes != numberOfAttributes)
+            throw new IllegalArgumentException("Numero di attributi diverso\n");
+        if ((long) (numberOfExamples + other.numberOfExamples) * numberOfAttributes > Integer.MAX_VALUE - 8)
+            throw new OutOfMemoryError("Dataset troppo grande per un array di double");
+        if (used > 0)
+            chunks.add(used == current.length ? current : Arrays.copyOf(current, used));
+        chunks.addAll(other.chunks);
+        current = other.current;
+        used = other.used;
+        numberOfExamples += other.numberOfExamples;
+        index = null;
+        hashes = null;
+    }
+
+    /**
+     * Metodo hash
+     * Restituisce l'hash dei valori di row, con -0.0 considerato uguale a 0.0.
+     */
+    private int hash(double[] row) {
+        long h = 1;
+        for (int k = 0; k < numberOfAttributes; k++)
+            h = 31 * h + Double.doubleToLongBits(row[k] + 0.0);
+        // rimescolamento finale di MurmurHash3: i bit bassi, usati per l'indice, dipendono da tutti i valori
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    /**
+     * Metodo find
+     * Restituisce la posizione in index dell'esempio uguale a row, o la posizione libera in cui inserirlo.
+     */
+    private int find(double[] row, int hash) {
+        int mask = index.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            long location = index[slot];
+            if (location == 0)
+                return slot;
+            if (hashes[slot] == hash && equal(row, location - 1))
+                return slot;
+        }
+    }
+
+    /**
+     * Metodo equal
+     * Indica se row ha gli stessi valori dell'esempio raccolto nella posizione (blocco, offset) location.
+     */
+    private boolean equal(double[] row, long location) {
+        int chunk = (int) (location >>> 32);
+        int offset = (int) location;
+        double[] values = chunk == chunks.size() ? current : chunks.get(chunk);
+        for (int k = 0; k < numberOfAttributes; k++)
+            if (Double.doubleToLongBits(row[k] + 0.0) != Double.doubleToLongBits(values[offset + k] + 0.0))
+                return false;
+        return true;
+    }
+
+    /**
+     * Metodo rehash
+     * Raddoppia la tabella hash degli esempi raccolti.
+     */
+    private void rehash() {
+        long[] oldIndex = index;
+        int[] oldHashes = hashes;
+        index = new long[oldIndex.length * 2];
+        hashes = new int[oldIndex.length * 2];
+        int mask = index.length - 1;
+        for (int s = 0; s < oldIndex.length; s++) {
+            if (oldIndex[s] == 0)
+                continue;
+            int slot = oldHashes[s] & mask;
+            while (index[slot] != 0)
+                slot = (slot + 1) & mask;
+            index[slot] = oldIndex[s];
+            hashes[slot] = oldHashes[s];
+        }
+    }
+
+    /**
+     * Metodo getNumberOfExamples
+     *
+     * @return numero di esempi raccolti
+     */
+    public int getNumberOfExamples() {
+        return numberOfExamples;
+    }
+
+    /**
+     * Metodo getNumberOfAttributes
+     *
+     * @return numero di valori di ogni esempio
+     */
+    public int getNumberOfAttributes() {
+        return numberOfAttributes;
+    }
+
+    /**
+     * Metodo values
+     * Restituisce i valori raccolti, in un array della dimensione esatta.
+     *
+     * @return valori degli esempi, riga per riga
+     */
+    double[] values() {
+        double[] values = new double[numberOfExamples * numberOfAttributes];
+        int offset = 0;
+        for (double[] chunk : chunks) {
+            System.arraycopy(chunk, 0, values, offset, chunk.length);
+            offset += chunk.length;
+        }
+        System.arraycopy(current, 0, values, offset, used);
+        return values;
+    }
+
+    /**
+     * Metodo build
+     * Crea il dataset con gli esempi raccolti.
+     *
+     * @return dataset con gli esempi raccolti
+     */
+    public Data build() {
+        return new Data(values(), numberOfExamples, numberOfAttributes);
+    }
+}
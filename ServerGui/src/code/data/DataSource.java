@@ -0,0 +1,25 @@
+package code.data;
+
+/**
+ * Interfaccia DataSource
+ * Modella una sorgente da cui leggere gli esempi di un dataset: una tabella del database
+ * (JdbcDataSource), un file CSV (CsvDataSource) o uno snapshot binario (SnapshotDataSource).
+ */
+public interface DataSource {
+
+    /**
+     * Metodo getName
+     *
+     * @return descrizione della sorgente, da usare nei messaggi
+     */
+    String getName();
+
+    /**
+     * Metodo load
+     * Legge gli esempi della sorgente.
+     *
+     * @return dataset letto
+     * @throws NoDataException se la sorgente non può essere letta, è vuota o contiene valori non numerici
+     */
+    Data load() throws NoDataException;
+}
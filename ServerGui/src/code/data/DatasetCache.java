@@ -0,0 +1,241 @@
+package code.data;
+
+import code.database.DatabaseConnectionException;
+import code.database.DbAccess;
+import code.database.TableData;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Classe DatasetCache
+ * Cache, condivisa da tutte le sessioni del server, dei dataset letti dal database, indicizzati
+ * per nome di tabella: le richieste della stessa tabella ricevono la stessa istanza di Data,
+ * che non viene mai modificata e può quindi essere usata da più clustering contemporaneamente.
+ * Ad ogni richiesta viene letta la versione della tabella (TableData.getVersion) e un dataset
+ * di versione diversa non viene restituito ma riletto; letture concorrenti della stessa versione
+ * di una tabella sono eseguite una sola volta. Quando la memoria heap dei valori dei dataset
+ * supera il budget, vengono rimossi quelli usati meno di recente.
+ * Se è indicata una cartella degli snapshot, ogni tabella letta dal database vi è salvata con
+ * SnapshotDataSource, in un file che ne riporta la versione: le letture successive della stessa
+ * versione, anche dopo un riavvio del server, usano lo snapshot invece del database.
+ */
+public class DatasetCache {
+    /** estensione dei file di snapshot */
+    private static final String SNAPSHOT_EXTENSION = ".hcls";
+
+    /**
+     * cache condivisa: il budget è letto dalla proprietà di sistema hclus.cache.maxBytes
+     * (di default un quarto della memoria della JVM); la versione di una tabella è l'istante della sua ultima
+     * modifica, o con hclus.cache.checksum il checksum dell'intera tabella, più sicuro ma costoso quanto una lettura;
+     * la cartella degli snapshot è letta dalla proprietà hclus.snapshotDir (di default nessuna)
+     */
+    private static final DatasetCache CACHE = new DatasetCache(
+            Long.getLong("hclus.cache.maxBytes", Runtime.getRuntime().maxMemory() / 4),
+            Boolean.getBoolean("hclus.cache.checksum"),
+            System.getProperty("hclus.snapshotDir") == null ? null : Path.of(System.getProperty("hclus.snapshotDir")));
+
+    private final long budget; // memoria massima, in byte, dei dataset in cache
+    private final boolean checksum; // true se la versione di una tabella è il suo checksum
+    private final Path snapshotDirectory; // cartella degli snapshot, null se non sono usati
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // in ordine di uso
+    private long hits; // richieste servite senza leggere la tabella
+    private long misses; // richieste che hanno letto la tabella
+    private long evictions; // dataset rimossi per rispettare il budget
+
+    /**
+     * Costruttore
+     *
+     * @param budget memoria massima, in byte, dei dataset in cache
+     * @param checksum true per riconoscere le modifiche di una tabella dal suo checksum,
+     *                 false per usare l'istante della sua ultima modifica
+     * @param snapshotDirectory cartella degli snapshot, null per non usarli
+     */
+    DatasetCache(long budget, boolean checksum, Path snapshotDirectory) {
+        this.budget = budget;
+        this.checksum = checksum;
+        this.snapshotDirectory = snapshotDirectory;
+    }
+
+    /**
+     * Metodo get
+     *
+     * @return cache condivisa dal server
+     */
+    public static DatasetCache get() {
+        return CACHE;
+    }
+
+    /**
+     * Metodo load
+     * Restituisce il dataset della tabella tableName, leggendolo dal database solo se non è in cache
+     * o se la tabella è cambiata; se la stessa tabella è già in lettura, ne attende il risultato.
+     *
+     * @param tableName nome della tabella nel database
+     * @return dataset della tabella, da non modificare
+     * @throws NoDataException se la tabella non può essere letta o è vuota
+     */
+    public Data load(String tableName) throws NoDataException {
+        long version = version(tableName);
+        Entry entry;
+        boolean owner = false;
+        synchronized (this) {
+            entry = entries.get(tableName);
+            if (entry != null && entry.version == version) {
+                hits++;
+            } else {
+                entry = new Entry(version);
+                entries.put(tableName, entry);
+                misses++;
+                owner = true;
+            }
+        }
+
+        if (!owner) {
+            try {
+                return entry.data.join();
+            } catch (CompletionException e) {
+                throw new NoDataException(e.getCause().getMessage());
+            }
+        }
+
+        try {
+            Data data = read(tableName, version);
+            entry.data.complete(data);
+            return data;
+        } catch (NoDataException | RuntimeException e) {
+            synchronized (this) {
+                entries.remove(tableName, entry);
+            }
+            entry.data.completeExceptionally(e);
+            throw e;
+        } finally {
+            evict();
+        }
+    }
+
+    /**
+     * Metodo invalidate
+     * Rimuove dalla cache il dataset della tabella tableName; chi lo sta usando può continuare a farlo.
+     *
+     * @param tableName nome della tabella nel database
+     */
+    public synchronized void invalidate(String tableName) {
+        entries.remove(tableName);
+    }
+
+    /**
+     * Metodo read
+     * Legge la versione version della tabella dal suo snapshot, se esiste, o dal database,
+     * salvandone lo snapshot e cancellando quelli delle versioni precedenti.
+     */
+    private Data read(String tableName, long version) throws NoDataException {
+        if (snapshotDirectory == null)
+            return new JdbcDataSource(tableName).load();
+
+        Path file = snapshotDirectory.resolve(tableName + "." + Long.toHexString(version) + SNAPSHOT_EXTENSION);
+        if (Files.isRegularFile(file)) {
+            try {
+                return new SnapshotDataSource(file).load();
+            } catch (NoDataException e) {
+                System.err.println(e.getMessage());
+            }
+        }
+
+        Data data = new JdbcDataSource(tableName).load();
+        try {
+            Files.createDirectories(snapshotDirectory);
+            SnapshotDataSource.write(data, file);
+            try (DirectoryStream<Path> old = Files.newDirectoryStream(snapshotDirectory, tableName + ".*" + SNAPSHOT_EXTENSION)) {
+                for (Path other : old) {
+                    String name = other.getFileName().toString();
+                    String tag = name.substring(tableName.length() + 1, name.length() - SNAPSHOT_EXTENSION.length());
+                    // il nome di un'altra tabella può iniziare con tableName seguito da un punto
+                    if (!other.equals(file) && tag.matches("[0-9a-f]+"))
+                        Files.deleteIfExists(other);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Impossibile salvare lo snapshot " + file + ": " + e.getMessage());
+        }
+        return data;
+    }
+
+    /**
+     * Metodo version
+     * Restituisce la versione corrente della tabella.
+     */
+    private long version(String tableName) throws NoDataException {
+        try {
+            return new TableData(new DbAccess()).getVersion(tableName, checksum);
+        } catch (DatabaseConnectionException e) {
+            throw new NoDataException("Errore di connessione al database: " + e.getMessage() + "\n");
+        } catch (SQLException e) {
+            throw new NoDataException("Errore SQL durante il recupero dei dati dalla tabella: " + e.getMessage() + "\n");
+        }
+    }
+
+    /**
+     * Metodo evict
+     * Rimuove i dataset usati meno di recente finché la memoria occupata non rientra nel budget;
+     * i dataset in lettura non sono considerati.
+     */
+    private synchronized void evict() {
+        long bytes = footprint();
+        Iterator<Entry> it = entries.values().iterator();
+        while (bytes > budget && it.hasNext()) {
+            Entry entry = it.next();
+            Data data = entry.data.getNow(null);
+            if (data != null) {
+                bytes -= data.getHeapFootprint();
+                it.remove();
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * Metodo footprint
+     * Restituisce la memoria heap occupata dai dataset in cache.
+     */
+    private synchronized long footprint() {
+        long bytes = 0;
+        for (Entry entry : entries.values()) {
+            Data data = entry.data.getNow(null);
+            if (data != null)
+                bytes += data.getHeapFootprint();
+        }
+        return bytes;
+    }
+
+    /**
+     * Metodo toString
+     *
+     * @return numero di dataset e memoria occupata, richieste servite dalla cache e dal database, rimozioni
+     */
+    @Override
+    public synchronized String toString() {
+        return "dataset in cache: " + entries.size() + ", byte: " + footprint() + " su " + budget
+                + ", richieste dalla cache: " + hits + ", letture: " + misses + ", rimozioni: " + evictions;
+    }
+
+    /**
+     * Classe Entry
+     * Dataset di una versione di una tabella, completato al termine della lettura.
+     */
+    private static class Entry {
+        final long version; // versione della tabella letta
+        final CompletableFuture<Data> data = new CompletableFuture<>(); // dataset letto
+
+        Entry(long version) {
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package code.data;
+
+/**
+ * Interfaccia DistanceKernel
+ * calcola la distanza euclidea al quadrato tra due vettori memorizzati in array di double.
+ * L'implementazione vettoriale (Vector API) è scelta all'avvio se il modulo
+ * jdk.incubator.vector è presente, altrimenti si usa il ciclo scalare
+ *
+ */
+interface DistanceKernel {
+
+    /**
+     * metodo squaredDistance
+     * restituisce la somma dei quadrati delle differenze tra a[aOffset..aOffset+length)
+     * e b[bOffset..bOffset+length)
+     *
+     * @param a primo array
+     * @param aOffset posizione del primo valore in a
+     * @param b secondo array
+     * @param bOffset posizione del primo valore in b
+     * @param length numero di valori da confrontare
+     * @return distanza euclidea al quadrato
+     */
+    double squaredDistance(double[] a, int aOffset, double[] b, int bOffset, int length);
+
+    /**
+     * metodo get
+     * restituisce il kernel scelto all'avvio
+     *
+     * @return kernel in uso
+     */
+    static DistanceKernel get() {
+        return Holder.KERNEL;
+    }
+
+    /**
+     * metodo description
+     * restituisce una descrizione, su una sola riga, del kernel scelto all'avvio
+     * e del motivo dell'eventuale ripiego sul kernel scalare
+     *
+     * @return descrizione del kernel in uso
+     */
+    static String description() {
+        return Holder.DESCRIPTION;
+    }
+
+    /**
+     * Classe Holder
+     * sceglie il kernel alla prima richiesta; la proprietà di sistema hclus.vector=false
+     * forza il kernel scalare. La scelta non stampa nulla: il server ne riporta la descrizione all'avvio
+     */
+    final class Holder {
+        private static final DistanceKernel KERNEL;
+        private static final String DESCRIPTION;
+
+        static {
+            DistanceKernel kernel = null;
+            String description;
+            if (!Boolean.parseBoolean(System.getProperty("hclus.vector", "true"))) {
+                description = "scalare (hclus.vector=false)";
+            } else if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+                description = "scalare (modulo jdk.incubator.vector assente)";
+            } else {
+                try {
+                    // caricata per nome: senza il modulo la classe non deve essere risolta
+                    kernel = (DistanceKernel) Class.forName("code.data.VectorDistanceKernel")
+                            .getDeclaredConstructor().newInstance();
+                    description = "vettoriale (Vector API)";
+                } catch (ReflectiveOperationException | LinkageError e) {
+                    description = "scalare (Vector API non disponibile: " + e + ")";
+                }
+            }
+            KERNEL = kernel != null ? kernel : new ScalarDistanceKernel();
+            DESCRIPTION = description;
+        }
+
+        private Holder() {
+        }
+    }
+}
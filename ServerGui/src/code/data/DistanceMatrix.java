@@ -0,0 +1,46 @@
+package code.data;
+
+/**
+ * Interfaccia DistanceMatrix
+ * Modella la matrice simmetrica delle distanze tra gli esempi di un dataset,
+ * di cui è memorizzata solo la parte triangolare superiore.
+ * La matrice appartiene a chi l'ha calcolata con Data.distance, che può usarla come copia di lavoro
+ * aggiornandone i valori con set; non è sincronizzata e non va condivisa tra thread mentre viene modificata.
+ */
+public interface DistanceMatrix {
+
+    /**
+     * Metodo getNumberOfExamples
+     *
+     * @return numero di esempi (righe) della matrice
+     */
+    int getNumberOfExamples();
+
+    /**
+     * Metodo get
+     * Restituisce la distanza tra gli esempi i e j, in qualsiasi ordine; la distanza di un esempio da sé stesso è 0.
+     *
+     * @param i indice del primo esempio
+     * @param j indice del secondo esempio
+     * @return distanza tra i due esempi
+     */
+    double get(int i, int j);
+
+    /**
+     * Metodo isSinglePrecision
+     *
+     * @return true se le distanze sono memorizzate come float
+     */
+    boolean isSinglePrecision();
+
+    /**
+     * Metodo set
+     * Sostituisce la distanza tra gli esempi i e j, in qualsiasi ordine; in precisione singola il valore
+     * viene arrotondato a float.
+     *
+     * @param i indice del primo esempio
+     * @param j indice del secondo esempio, diverso da i
+     * @param value nuova distanza tra i due esempi
+     */
+    void set(int i, int j, double value);
+}
@@ -1,33 +1,77 @@
 package code.data;
 
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * Classe Example
- * modella le entità esempio inteso come vettore di valori reali
+ * modella le entità esempio inteso come vettore di valori reali,
+ * memorizzati in un array di double
  *
  */
 public class Example implements Iterable<Double>{
-    private List<Double> example; //vettore di valori reali
+    private double[] example; //vettore di valori reali
+    private int offset; //posizione del primo valore in example
+    private int size; //numero di valori memorizzati in example
+    private boolean view; //true se example è condiviso con un Data
 
     /**
-     * Costruttore, crea un'istanza di classe Example
+     * Costruttore, crea un'istanza di classe Example vuota,
+     * da riempire con add
      *
      */
     public Example(){
-        example = new LinkedList<>();
+        example = new double[8];
+    }
+
+    /**
+     * Costruttore, crea un'istanza di classe Example con i valori indicati;
+     * l'array non viene copiato
+     *
+     * @param values valori dell'esempio
+     */
+    public Example(double[] values){
+        example = values;
+        size = values.length;
+    }
+
+    /**
+     * Costruttore, crea una vista sui size valori di values a partire da offset;
+     * l'array non viene copiato finché la vista non viene modificata con add
+     *
+     * @param values array che contiene i valori dell'esempio
+     * @param offset posizione del primo valore
+     * @param size numero di valori dell'esempio
+     */
+    Example(double[] values, int offset, int size){
+        example = values;
+        this.offset = offset;
+        this.size = size;
+        view = true;
     }
 
     /**
      * metodo iterator
-     * restituisce un iteratore per scorrere gli elementi di example
+     * restituisce un iteratore per scorrere gli elementi di example;
+     * è mantenuto per compatibilità, il calcolo delle distanze accede direttamente all'array
      *
-     * @return example.iterator() iteratore per scorrere gli elementi di example
+     * @return iteratore per scorrere gli elementi di example
      */
     public Iterator<Double> iterator(){
-        return example.iterator();
+        return new Iterator<Double>() {
+            private int next = 0;
+
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            public Double next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return example[offset + next++];
+            }
+        };
     }
 
     /**
@@ -37,7 +81,24 @@ public class Example implements Iterable<Double>{
      * @param v valore da inserire
      */
     public void add(Double v){
-        example.add(v);
+        if (view) {
+            example = Arrays.copyOfRange(example, offset, offset + Math.max(8, size * 2));
+            offset = 0;
+            view = false;
+        }
+        else if (size == example.length)
+            example = Arrays.copyOf(example, Math.max(8, size * 2));
+        example[size++] = v;
+    }
+
+    /**
+     * metodo getSize
+     * restituisce il numero di valori dell'esempio
+     *
+     * @return numero di valori memorizzati in example
+     */
+    public int getSize(){
+        return size;
     }
 
     /**
@@ -47,31 +108,25 @@ public class Example implements Iterable<Double>{
      * @param index indice del valore da prendere
      * @return value valore memorizzato in example in posizione index
      */
-    Double get(int index){
-        return example.get(index);
+    double get(int index){
+        if (index >= size)
+            throw new IndexOutOfBoundsException(index);
+        return example[offset + index];
     }
 
     /**
      * metodo distance
-     * calcola la distanza euclidea tra l'istanza this.Example e l'istanza newE.Example
+     * calcola la distanza euclidea (al quadrato) tra l'istanza this.Example e l'istanza newE.Example,
+     * con il kernel vettoriale se la Vector API è disponibile
      *
      * @param  newE istanza di classe Example con cui calcolare la distanza
-     * @return sum somma delle distanze tra i valori delle due istanze Example
+     * @return sum somma dei quadrati delle differenze tra i valori delle due istanze Example
      */
      public double distance(Example newE) throws InvalidSizeException{
-         if(example.size() != newE.example.size())
+         if(size != newE.size)
              throw new InvalidSizeException("Gli esempi hanno dimensioni diverse!");
 
-         double sum = 0.0;
-         Iterator<Double> iterator1 = example.iterator();
-         Iterator<Double> iterator2 = newE.iterator();
-
-         while (iterator1.hasNext() && iterator2.hasNext()) {
-             double diff = iterator1.next() - iterator2.next();
-             sum += Math.pow(diff, 2);
-         }
-
-         return sum;
+         return DistanceKernel.get().squaredDistance(example, offset, newE.example, newE.offset, size);
     }
 
 /**
@@ -82,15 +137,13 @@ public class Example implements Iterable<Double>{
      */
     public String toString() {
         StringBuilder s = new StringBuilder();
-        Iterator<Double> iterator = iterator();
 
-        if (iterator.hasNext())
-            s.append(iterator.next());
-
-        while (iterator.hasNext())
-            s.append(",").append(iterator.next());
+        for (int i = 0; i < size; i++) {
+            if (i > 0)
+                s.append(",");
+            s.append(example[offset + i]);
+        }
 
         return s.toString();
     }
 }
-
@@ -0,0 +1,58 @@
+package code.data;
+
+import code.database.DatabaseConnectionException;
+import code.database.DbAccess;
+import code.database.EmptySetException;
+import code.database.MissingNumberException;
+import code.database.TableData;
+
+import java.sql.SQLException;
+
+/**
+ * Classe JdbcDataSource
+ * Legge gli esempi distinti di una tabella del database con TableData.
+ */
+public class JdbcDataSource implements DataSource {
+    private final String tableName; // nome della tabella nel database
+
+    /**
+     * Costruttore
+     *
+     * @param tableName nome della tabella nel database
+     */
+    public JdbcDataSource(String tableName) {
+        this.tableName = tableName;
+    }
+
+    /**
+     * Metodo getName
+     *
+     * @return descrizione della tabella
+     */
+    @Override
+    public String getName() {
+        return "tabella " + tableName;
+    }
+
+    /**
+     * Metodo load
+     * Legge gli esempi distinti della tabella.
+     *
+     * @return dataset letto
+     * @throws NoDataException se la tabella non può essere letta, è vuota o contiene attributi non numerici
+     */
+    @Override
+    public Data load() throws NoDataException {
+        try {
+            return new TableData(new DbAccess()).loadDistinctTransazioni(tableName).build();
+        } catch (DatabaseConnectionException e) {
+            throw new NoDataException("Errore di connessione al database: " + e.getMessage() + "\n");
+        } catch (EmptySetException e) {
+            throw new NoDataException("La tabella " + tableName + " è vuota: " + e.getMessage() + "\n");
+        } catch (MissingNumberException e) {
+            throw new NoDataException("Eccezione durante l'elaborazione dei dati: " + e.getMessage() + "\n");
+        } catch (SQLException e) {
+            throw new NoDataException("Errore SQL durante il recupero dei dati dalla tabella: " + e.getMessage() + "\n");
+        }
+    }
+}
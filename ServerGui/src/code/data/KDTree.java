@@ -0,0 +1,337 @@
+package code.data;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Classe KDTree
+ * Indice spaziale sugli esempi di un Data: ogni nodo copre un intervallo di esempi,
+ * racchiusi in un parallelepipedo, e viene diviso a metà lungo la dimensione più estesa
+ * finché non contiene al più LEAF_SIZE esempi. Le distanze restituite sono quelle di
+ * Data.distance, quindi i risultati coincidono con quelli di una ricerca esaustiva.
+ * I nodi sono memorizzati in array di tipi primitivi.
+ */
+public class KDTree {
+    /** numero massimo di esempi in una foglia */
+    private static final int LEAF_SIZE = 16;
+    /**
+     * tolleranza relativa con cui un nodo è scartato: il limite inferiore dato dal parallelepipedo
+     * e la distanza calcolata dal kernel sono arrotondati in modo diverso
+     */
+    private static final double SLACK = 1e-12;
+
+    private final Data data; // dataset indicizzato
+    private final int d; // numero di attributi
+    private final int[] order; // esempi ordinati in modo che ogni nodo copra un intervallo contiguo
+    private final int[] start; // primo esempio (in order) di ogni nodo
+    private final int[] end; // esempio successivo all'ultimo (in order) di ogni nodo
+    private final int[] left; // figlio sinistro di ogni nodo, -1 per le foglie
+    private final int[] right; // figlio destro di ogni nodo, -1 per le foglie
+    private final double[] low; // estremi inferiori del parallelepipedo di ogni nodo, d valori per nodo
+    private final double[] high; // estremi superiori del parallelepipedo di ogni nodo, d valori per nodo
+    private int nodes; // numero di nodi
+
+    /**
+     * Costruttore
+     * Costruisce l'indice sugli esempi di data.
+     *
+     * @param data dataset da indicizzare
+     */
+    public KDTree(Data data) {
+        this.data = data;
+        d = data.getNumberOfAttributes();
+        int n = data.getNumberOfExample();
+        order = new int[n];
+        for (int i = 0; i < n; i++)
+            order[i] = i;
+
+        // le foglie contengono almeno LEAF_SIZE/2 esempi, quindi i nodi sono meno di 4n/LEAF_SIZE + 1
+        int capacity = 4 * n / LEAF_SIZE + 2;
+        start = new int[capacity];
+        end = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        low = new double[capacity * d];
+        high = new double[capacity * d];
+        if (n > 0)
+            build(0, n);
+    }
+
+    /**
+     * Metodo build
+     * Crea il nodo che copre gli esempi order[from..to) e, ricorsivamente, i suoi figli.
+     *
+     * @return indice del nodo creato
+     */
+    private int build(int from, int to) {
+        int node = nodes++;
+        start[node] = from;
+        end[node] = to;
+        left[node] = -1;
+        right[node] = -1;
+
+        int widest = 0;
+        double width = -1;
+        for (int k = 0; k < d; k++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int p = from; p < to; p++) {
+                double v = data.getValue(order[p], k);
+                if (v < min)
+                    min = v;
+                if (v > max)
+                    max = v;
+            }
+            low[node * d + k] = min;
+            high[node * d + k] = max;
+            if (max - min > width) {
+                width = max - min;
+                widest = k;
+            }
+        }
+
+        if (to - from > LEAF_SIZE && width > 0) {
+            int mid = (from + to) >>> 1;
+            select(from, to, mid, widest);
+            left[node] = build(from, mid);
+            right[node] = build(mid, to);
+        }
+        return node;
+    }
+
+    /**
+     * Metodo select
+     * Riordina order[from..to) in modo che in posizione k ci sia l'esempio che vi starebbe ordinando
+     * per la dimensione dim, con i precedenti non maggiori e i successivi non minori.
+     */
+    private void select(int from, int to, int k, int dim) {
+        int lo = from;
+        int hi = to - 1;
+        while (lo < hi) {
+            double pivot = data.getValue(order[(lo + hi) >>> 1], dim);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (data.getValue(order[i], dim) < pivot)
+                    i++;
+                while (data.getValue(order[j], dim) > pivot)
+                    j--;
+                if (i <= j) {
+                    int t = order[i];
+                    order[i++] = order[j];
+                    order[j--] = t;
+                }
+            }
+            if (k <= j)
+                hi = j;
+            else if (k >= i)
+                lo = i;
+            else
+                return;
+        }
+    }
+
+    /**
+     * Metodo labelNodes
+     * Restituisce, per ogni nodo, l'etichetta comune a tutti i suoi esempi, o -1 se le etichette sono diverse;
+     * serve a nearestWithDifferentLabel per scartare interi nodi.
+     *
+     * @param labels etichetta di ogni esempio, non negativa
+     * @return etichetta comune di ogni nodo
+     */
+    public int[] labelNodes(int[] labels) {
+        int[] nodeLabels = new int[nodes];
+        // i figli hanno indice maggiore del padre: si procede a ritroso
+        for (int node = nodes - 1; node >= 0; node--) {
+            if (left[node] < 0) {
+                int label = labels[order[start[node]]];
+                for (int p = start[node] + 1; p < end[node] && label >= 0; p++)
+                    if (labels[order[p]] != label)
+                        label = -1;
+                nodeLabels[node] = label;
+            } else {
+                int l = nodeLabels[left[node]];
+                nodeLabels[node] = l == nodeLabels[right[node]] ? l : -1;
+            }
+        }
+        return nodeLabels;
+    }
+
+    /**
+     * Metodo nearestWithDifferentLabel
+     * Restituisce l'esempio più vicino a query tra quelli con etichetta diversa dalla sua,
+     * a distanza non maggiore di bound; a parità di distanza restituisce quello di indice minore.
+     *
+     * @param query indice dell'esempio di cui cercare il vicino
+     * @param labels etichetta di ogni esempio
+     * @param nodeLabels etichette dei nodi calcolate da labelNodes con le stesse etichette
+     * @param bound distanza massima del vicino
+     * @return indice del vicino, -1 se non esiste a distanza non maggiore di bound
+     */
+    public int nearestWithDifferentLabel(int query, int[] labels, int[] nodeLabels, double bound) {
+        if (nodes == 0)
+            return -1;
+        Search search = new Search(query, labels[query], bound);
+        nearest(0, search, labels, nodeLabels);
+        return search.best;
+    }
+
+    /**
+     * Metodo nearest
+     * Visita il nodo node, prima il figlio più vicino a query, scartando i nodi che non possono
+     * contenere un vicino migliore di quello trovato.
+     */
+    private void nearest(int node, Search search, int[] labels, int[] nodeLabels) {
+        if (nodeLabels[node] == search.label || exceeds(lowerBound(node, search.query), search.distance))
+            return;
+
+        if (left[node] < 0) {
+            for (int p = start[node]; p < end[node]; p++) {
+                int j = order[p];
+                if (labels[j] == search.label)
+                    continue;
+                double dist = data.distance(search.query, j);
+                if (dist < search.distance || (dist == search.distance && (search.best < 0 || j < search.best))) {
+                    search.distance = dist;
+                    search.best = j;
+                }
+            }
+            return;
+        }
+
+        int first = left[node];
+        int second = right[node];
+        if (lowerBound(second, search.query) < lowerBound(first, search.query)) {
+            first = right[node];
+            second = left[node];
+        }
+        nearest(first, search, labels, nodeLabels);
+        nearest(second, search, labels, nodeLabels);
+    }
+
+    /**
+     * Metodo nearest
+     * Restituisce l'esempio indicizzato più vicino all'esempio example di source, che deve avere
+     * lo stesso numero di attributi; a parità di distanza restituisce quello di indice minore.
+     *
+     * @param source dataset dell'esempio di cui cercare il vicino
+     * @param example indice dell'esempio in source
+     * @return indice del vicino, -1 se l'indice è vuoto
+     */
+    public int nearest(Data source, int example) {
+        if (nodes == 0)
+            return -1;
+        Search search = new Search(example, -1, Double.POSITIVE_INFINITY);
+        nearest(0, source, search);
+        return search.best;
+    }
+
+    /**
+     * Metodo nearest
+     * Visita il nodo node per la ricerca del vicino di un esempio di source.
+     */
+    private void nearest(int node, Data source, Search search) {
+        if (exceeds(lowerBound(node, source, search.query), search.distance))
+            return;
+
+        if (left[node] < 0) {
+            for (int p = start[node]; p < end[node]; p++) {
+                int j = order[p];
+                double dist = source.exampleDistance(search.query, data, j);
+                if (dist < search.distance || (dist == search.distance && (search.best < 0 || j < search.best))) {
+                    search.distance = dist;
+                    search.best = j;
+                }
+            }
+            return;
+        }
+
+        int first = left[node];
+        int second = right[node];
+        if (lowerBound(second, source, search.query) < lowerBound(first, source, search.query)) {
+            first = right[node];
+            second = left[node];
+        }
+        nearest(first, source, search);
+        nearest(second, source, search);
+    }
+
+    /**
+     * Metodo range
+     * Passa ad action ogni esempio diverso da query a distanza da query non maggiore di radius
+     * (con la tolleranza degli arrotondamenti: il chiamante verifica la distanza esatta).
+     *
+     * @param query indice dell'esempio centrale
+     * @param radius distanza massima
+     * @param action azione da eseguire per ogni esempio trovato
+     */
+    public void range(int query, double radius, IntConsumer action) {
+        if (nodes > 0)
+            range(0, query, radius, action);
+    }
+
+    /**
+     * Metodo range
+     * Visita il nodo node per la ricerca degli esempi entro radius da query.
+     */
+    private void range(int node, int query, double radius, IntConsumer action) {
+        if (exceeds(lowerBound(node, query), radius))
+            return;
+        if (left[node] < 0) {
+            for (int p = start[node]; p < end[node]; p++) {
+                int j = order[p];
+                if (j != query && !exceeds(data.distance(query, j), radius))
+                    action.accept(j);
+            }
+            return;
+        }
+        range(left[node], query, radius, action);
+        range(right[node], query, radius, action);
+    }
+
+    /**
+     * Metodo lowerBound
+     * Restituisce la distanza Euclidea (al quadrato) tra query e il parallelepipedo del nodo.
+     */
+    private double lowerBound(int node, int query) {
+        return lowerBound(node, data, query);
+    }
+
+    /**
+     * Metodo lowerBound
+     * Restituisce la distanza Euclidea (al quadrato) tra l'esempio query di source e il parallelepipedo del nodo.
+     */
+    private double lowerBound(int node, Data source, int query) {
+        double sum = 0;
+        for (int k = 0; k < d; k++) {
+            double v = source.getValue(query, k);
+            double gap = v < low[node * d + k] ? low[node * d + k] - v : v > high[node * d + k] ? v - high[node * d + k] : 0;
+            sum += gap * gap;
+        }
+        return sum;
+    }
+
+    /**
+     * Metodo exceeds
+     * Indica se la distanza value è certamente maggiore di bound, tenendo conto degli arrotondamenti.
+     */
+    private static boolean exceeds(double value, double bound) {
+        return value > bound + bound * SLACK;
+    }
+
+    /**
+     * Classe Search
+     * Stato di una ricerca del vicino più prossimo.
+     */
+    private static class Search {
+        final int query; // esempio di cui si cerca il vicino
+        final int label; // etichetta dell'esempio query
+        double distance; // distanza del miglior vicino trovato, o limite iniziale
+        int best = -1; // miglior vicino trovato
+
+        Search(int query, int label, double bound) {
+            this.query = query;
+            this.label = label;
+            this.distance = bound;
+        }
+    }
+}
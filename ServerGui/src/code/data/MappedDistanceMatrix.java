@@ -0,0 +1,144 @@
+package code.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Classe MappedDistanceMatrix
+ * Memorizza la matrice condensata delle distanze in un file temporaneo mappato in memoria,
+ * per i dataset la cui matrice non entra nello heap della JVM: le pagine sono gestite
+ * dalla cache del sistema operativo e lo heap contiene solo i riferimenti ai segmenti mappati.
+ * La disposizione dei valori è la stessa di CondensedDistanceMatrix.
+ * Il file viene eliminato subito dopo la mappatura; sui sistemi che non consentono di eliminare
+ * un file mappato (Windows) l'eliminazione viene ritentata alla creazione delle matrici successive,
+ * quando la mappatura precedente è stata rilasciata, e in ogni caso alla chiusura della JVM.
+ */
+public class MappedDistanceMatrix implements DistanceMatrix {
+    /** logaritmo in base 2 del numero di valori di un segmento mappato */
+    private static final int SEGMENT_SHIFT = 27;
+    /** lato dei blocchi di esempi in cui è suddiviso il calcolo delle distanze */
+    private static final int TILE = 256;
+    /** file temporanei che non è stato possibile eliminare perché ancora mappati */
+    private static final Queue<File> PENDING_DELETES = new ConcurrentLinkedQueue<>();
+
+    private final int numberOfExamples; // numero di esempi
+    private final boolean singlePrecision; // true se le distanze sono memorizzate come float
+    private final MappedByteBuffer[] segments; // segmenti del file, ciascuno di al più 2^SEGMENT_SHIFT valori
+
+    /**
+     * Costruttore
+     * Calcola le distanze tra tutte le coppie di esempi di data e le scrive in un file temporaneo
+     * nella cartella directory; il file viene eliminato appena il sistema lo consente.
+     *
+     * @param data dataset di cui calcolare le distanze
+     * @param singlePrecision true per memorizzare le distanze come float
+     * @param directory cartella del file temporaneo, null per quella predefinita del sistema
+     * @throws IOException se il file non può essere creato o mappato
+     */
+    public MappedDistanceMatrix(Data data, boolean singlePrecision, File directory) throws IOException {
+        deletePending();
+        numberOfExamples = data.getNumberOfExample();
+        this.singlePrecision = singlePrecision;
+
+        long length = (long) numberOfExamples * (numberOfExamples - 1) / 2;
+        int elementBytes = singlePrecision ? Float.BYTES : Double.BYTES;
+        segments = new MappedByteBuffer[(int) ((length + (1L << SEGMENT_SHIFT) - 1) >>> SEGMENT_SHIFT)];
+
+        File file = File.createTempFile("hclus-distances", ".bin", directory);
+        file.deleteOnExit();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+            raf.setLength(length * elementBytes);
+            for (int s = 0; s < segments.length; s++) {
+                long first = (long) s << SEGMENT_SHIFT;
+                long count = Math.min(1L << SEGMENT_SHIFT, length - first);
+                segments[s] = channel.map(FileChannel.MapMode.READ_WRITE, first * elementBytes, count * elementBytes);
+            }
+        }
+        // la mappatura resta valida anche dopo la chiusura del canale e dopo l'eliminazione del file;
+        // dove il file mappato non può essere eliminato si ritenta più avanti
+        if (!file.delete())
+            PENDING_DELETES.add(file);
+
+        fill(data);
+    }
+
+    /**
+     * Metodo deletePending
+     * Ritenta l'eliminazione dei file temporanei delle matrici precedenti che non è stato possibile
+     * eliminare alla creazione; un file resta in attesa finché la sua mappatura non viene rilasciata.
+     */
+    private static void deletePending() {
+        for (Iterator<File> it = PENDING_DELETES.iterator(); it.hasNext(); ) {
+            File file = it.next();
+            if (file.delete() || !file.exists())
+                it.remove();
+        }
+    }
+
+    /**
+     * Metodo fill
+     * Calcola le distanze a blocchi di TILE x TILE esempi, così che le righe dei due blocchi
+     * restino nella cache del processore mentre vengono confrontate.
+     */
+    private void fill(Data data) {
+        int n = numberOfExamples;
+        for (int bi = 0; bi < n; bi += TILE) {
+            int ei = Math.min(n, bi + TILE);
+            for (int bj = bi; bj < n; bj += TILE) {
+                int ej = Math.min(n, bj + TILE);
+                for (int i = bi; i < ei; i++) {
+                    for (int j = Math.max(bj, i + 1); j < ej; j++)
+                        put(index(n, i, j), data.exampleDistance(i, j));
+                }
+            }
+        }
+    }
+
+    /**
+     * Metodo index
+     * Restituisce la posizione della coppia (i,j), con i minore di j, nella matrice condensata.
+     */
+    private static long index(int n, int i, int j) {
+        return (long) i * (2L * n - i - 1) / 2 + (j - i - 1);
+    }
+
+    /**
+     * Metodo put
+     * Scrive il valore in posizione k della matrice condensata.
+     */
+    private void put(long k, double value) {
+        MappedByteBuffer segment = segments[(int) (k >>> SEGMENT_SHIFT)];
+        int offset = (int) (k & ((1L << SEGMENT_SHIFT) - 1));
+        if (singlePrecision)
+            segment.putFloat(offset * Float.BYTES, (float) value);
+        else
+            segment.putDouble(offset * Double.BYTES, value);
+    }
+
+    public int getNumberOfExamples() {
+        return numberOfExamples;
+    }
+
+    public double get(int i, int j) {
+        if (i == j)
+            return 0;
+        long k = i < j ? index(numberOfExamples, i, j) : index(numberOfExamples, j, i);
+        MappedByteBuffer segment = segments[(int) (k >>> SEGMENT_SHIFT)];
+        int offset = (int) (k & ((1L << SEGMENT_SHIFT) - 1));
+        return singlePrecision ? segment.getFloat(offset * Float.BYTES) : segment.getDouble(offset * Double.BYTES);
+    }
+
+    public boolean isSinglePrecision() {
+        return singlePrecision;
+    }
+
+    public void set(int i, int j, double value) {
+        put(i < j ? index(numberOfExamples, i, j) : index(numberOfExamples, j, i), value);
+    }
+}
@@ -0,0 +1,29 @@
+package code.data;
+
+/**
+ * Classe ScalarDistanceKernel
+ * calcola la distanza euclidea al quadrato con un ciclo scalare
+ *
+ */
+class ScalarDistanceKernel implements DistanceKernel {
+
+    /**
+     * metodo squaredDistance
+     * restituisce la somma dei quadrati delle differenze tra i valori dei due vettori
+     *
+     * @param a primo array
+     * @param aOffset posizione del primo valore in a
+     * @param b secondo array
+     * @param bOffset posizione del primo valore in b
+     * @param length numero di valori da confrontare
+     * @return distanza euclidea al quadrato
+     */
+    public double squaredDistance(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        double sum = 0.0;
+        for (int i = 0; i < length; i++) {
+            double diff = a[aOffset + i] - b[bOffset + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,136 @@
+package code.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Classe SnapshotDataSource
+ * Legge gli esempi da uno snapshot binario scritto con write: un'intestazione di HEADER_BYTES byte
+ * (MAGIC, FORMAT_VERSION, numero di esempi, numero di attributi) seguita dai valori double little-endian,
+ * memorizzati riga per riga come nell'array di Data. Il file è mappato in memoria con FileChannel.map
+ * e i valori sono trasferiti nell'array del dataset con una copia in blocco, senza interpretarli uno a uno.
+ */
+public class SnapshotDataSource implements DataSource {
+    /** identificativo del formato, "HCLS" */
+    static final int MAGIC = 0x48434C53;
+    /** versione del formato */
+    static final int FORMAT_VERSION = 1;
+    /** byte dell'intestazione, multiplo di Double.BYTES */
+    static final int HEADER_BYTES = 16;
+    /** numero massimo di valori mappati per volta */
+    private static final int BLOCK_VALUES = 1 << 27;
+    /** numero di valori scritti per volta */
+    private static final int WRITE_VALUES = 1 << 17;
+
+    private final Path file; // snapshot da leggere
+
+    /**
+     * Costruttore
+     *
+     * @param file snapshot da leggere
+     */
+    public SnapshotDataSource(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Metodo getName
+     *
+     * @return descrizione dello snapshot
+     */
+    @Override
+    public String getName() {
+        return "snapshot " + file;
+    }
+
+    /**
+     * Metodo load
+     * Legge gli esempi dello snapshot.
+     *
+     * @return dataset letto
+     * @throws NoDataException se lo snapshot non può essere letto, non è valido o è vuoto
+     */
+    @Override
+    public Data load() throws NoDataException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES)
+                throw new NoDataException("Lo snapshot " + file + " non è valido\n");
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            int magic = header.getInt();
+            int version = header.getInt();
+            int numberOfExamples = header.getInt();
+            int numberOfAttributes = header.getInt();
+            long length = (long) numberOfExamples * numberOfAttributes;
+            if (magic != MAGIC || version != FORMAT_VERSION || numberOfExamples < 0 || numberOfAttributes < 0
+                    || length > Integer.MAX_VALUE - 8 || size != HEADER_BYTES + length * Double.BYTES)
+                throw new NoDataException("Lo snapshot " + file + " non è valido\n");
+            if (numberOfExamples == 0)
+                throw new NoDataException("Lo snapshot " + file + " è vuoto.\n");
+
+            double[] values = new double[(int) length];
+            for (int from = 0; from < values.length; from += BLOCK_VALUES) {
+                int count = Math.min(BLOCK_VALUES, values.length - from);
+                DoubleBuffer block = channel.map(FileChannel.MapMode.READ_ONLY,
+                                HEADER_BYTES + (long) from * Double.BYTES, (long) count * Double.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+                block.get(values, from, count);
+            }
+            return new Data(values, numberOfExamples, numberOfAttributes);
+        } catch (IOException e) {
+            throw new NoDataException("Errore nella lettura dello snapshot " + file + ": " + e.getMessage() + "\n");
+        }
+    }
+
+    /**
+     * Metodo write
+     * Scrive lo snapshot di data nel file indicato, passando per un file temporaneo nella stessa cartella
+     * che lo sostituisce solo a scrittura completata.
+     *
+     * @param data dataset da salvare
+     * @param file file dello snapshot
+     * @throws IOException se il file non può essere scritto
+     */
+    public static void write(Data data, Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_VALUES * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC).putInt(FORMAT_VERSION)
+                        .putInt(data.getNumberOfExample()).putInt(data.getNumberOfAttributes()).flip();
+                writeFully(channel, buffer);
+
+                double[] values = data.values();
+                int length = data.getNumberOfExample() * data.getNumberOfAttributes();
+                for (int from = 0; from < length; from += WRITE_VALUES) {
+                    int count = Math.min(WRITE_VALUES, length - from);
+                    buffer.clear();
+                    buffer.asDoubleBuffer().put(values, from, count);
+                    buffer.limit(count * Double.BYTES);
+                    writeFully(channel, buffer);
+                }
+                channel.force(false);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Metodo writeFully
+     * Scrive nel canale tutti i byte rimanenti del buffer.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+}
@@ -0,0 +1,48 @@
+package code.data;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Classe VectorDistanceKernel
+ * calcola la distanza euclidea al quadrato con la Vector API, elaborando
+ * tante componenti per istruzione quante ne contiene un registro SIMD della macchina.
+ * Le somme parziali per corsia sono ridotte alla fine, quindi il risultato può differire
+ * da quello del kernel scalare nell'ultima cifra binaria
+ *
+ */
+class VectorDistanceKernel implements DistanceKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    /**
+     * metodo squaredDistance
+     * restituisce la somma dei quadrati delle differenze tra i valori dei due vettori
+     *
+     * @param a primo array
+     * @param aOffset posizione del primo valore in a
+     * @param b secondo array
+     * @param bOffset posizione del primo valore in b
+     * @param length numero di valori da confrontare
+     * @return distanza euclidea al quadrato
+     */
+    public double squaredDistance(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        int i = 0;
+        double sum = 0.0;
+        int upperBound = SPECIES.loopBound(length);
+        if (upperBound > 0) {
+            DoubleVector acc = DoubleVector.zero(SPECIES);
+            for (; i < upperBound; i += SPECIES.length()) {
+                DoubleVector diff = DoubleVector.fromArray(SPECIES, a, aOffset + i)
+                        .sub(DoubleVector.fromArray(SPECIES, b, bOffset + i));
+                acc = diff.fma(diff, acc);
+            }
+            sum = acc.reduceLanes(VectorOperators.ADD);
+        }
+        for (; i < length; i++) {
+            double diff = a[aOffset + i] - b[bOffset + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+}
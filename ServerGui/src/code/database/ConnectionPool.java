@@ -0,0 +1,419 @@
+package code.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Classe ConnectionPool
+ * Pool limitato di connessioni JDBC verso una stessa stringa di connessione.
+ * Le connessioni sono prestate come proxy di Connection: la close del proxy restituisce
+ * la connessione al pool, dopo averne annullato l'eventuale transazione aperta.
+ * Una connessione inattiva da più di VALIDATION_IDLE_MILLIS è verificata con isValid prima del prestito;
+ * un thread di manutenzione chiude le connessioni inattive da più di idleTimeoutMillis o aperte da più
+ * di maxLifetimeMillis e segnala, con il thread e, se richiesto, lo stack del prestito, quelle in prestito
+ * da più di leakThresholdMillis. Le segnalazioni sono stampate su una sola riga, come gli altri messaggi del server.
+ * I prestiti che durano più di reclaimThresholdMillis sono considerati persi e revocati: la connessione fisica
+ * è chiusa e il suo posto torna disponibile, così le perdite non riducono per sempre la dimensione del pool;
+ * le chiamate successive sul proxy revocato falliscono come dopo la sua close.
+ */
+class ConnectionPool {
+    /** inattività oltre la quale una connessione è verificata prima del prestito */
+    private static final long VALIDATION_IDLE_MILLIS = 1000;
+    /** tempo massimo, in secondi, della verifica di una connessione */
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    /** intervallo tra due passi di manutenzione */
+    private static final long HOUSEKEEPING_MILLIS = 1000;
+    /** numero massimo di chiamate dello stack del prestito riportate in una segnalazione */
+    private static final int REPORTED_FRAMES = 8;
+
+    private final String url; // stringa di connessione
+    private final int maxSize; // numero massimo di connessioni, in prestito o inattive
+    private final long acquireTimeoutMillis; // attesa massima di un prestito
+    private final long idleTimeoutMillis; // inattività oltre la quale una connessione è chiusa
+    private final long maxLifetimeMillis; // durata oltre la quale una connessione è chiusa
+    private final long leakThresholdMillis; // durata del prestito oltre la quale è segnalata una perdita, 0 per non segnalarle
+    private final long reclaimThresholdMillis; // durata del prestito oltre la quale è revocato, 0 per non revocarli
+    private final boolean captureStack; // true se lo stack di ogni prestito è registrato per le segnalazioni
+
+    private final Semaphore permits; // un permesso per ogni connessione che può ancora essere prestata
+    private final Deque<PooledConnection> idle = new ArrayDeque<>(); // connessioni inattive, la più recente in testa
+    private final Set<Lease> borrowed = ConcurrentHashMap.newKeySet(); // prestiti in corso
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder closed = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private final LongAdder reclaimed = new LongAdder();
+
+    /**
+     * Costruttore
+     * Crea il pool, inizialmente vuoto, e avvia il thread di manutenzione.
+     *
+     * @param url stringa di connessione
+     * @param maxSize numero massimo di connessioni
+     * @param acquireTimeoutMillis attesa massima di un prestito
+     * @param idleTimeoutMillis inattività oltre la quale una connessione è chiusa
+     * @param maxLifetimeMillis durata oltre la quale una connessione è chiusa
+     * @param leakThresholdMillis durata del prestito oltre la quale è segnalata una perdita, 0 per non segnalarle
+     * @param reclaimThresholdMillis durata del prestito oltre la quale è revocato, 0 per non revocarli
+     * @param captureStack true per registrare lo stack di ogni prestito e riportarlo nelle segnalazioni;
+     *                     costa la lettura dello stack ad ogni prestito
+     */
+    ConnectionPool(String url, int maxSize, long acquireTimeoutMillis, long idleTimeoutMillis,
+            long maxLifetimeMillis, long leakThresholdMillis, long reclaimThresholdMillis, boolean captureStack) {
+        this.url = url;
+        this.maxSize = Math.max(1, maxSize);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.reclaimThresholdMillis = reclaimThresholdMillis;
+        this.captureStack = captureStack;
+        this.permits = new Semaphore(this.maxSize, true);
+
+        ScheduledExecutorService housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "hclus-db-pool");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, HOUSEKEEPING_MILLIS, HOUSEKEEPING_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Metodo borrow
+     * Presta una connessione, attendendo al più acquireTimeoutMillis che se ne liberi una.
+     * La connessione va restituita chiamandone close.
+     *
+     * @return connessione prestata
+     * @throws DatabaseConnectionException se l'attesa scade o non è possibile aprire una connessione
+     */
+    Connection borrow() throws DatabaseConnectionException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new DatabaseConnectionException("Nessuna connessione disponibile entro " + acquireTimeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseConnectionException(e.toString());
+        }
+
+        PooledConnection pc;
+        try {
+            pc = take();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw new DatabaseConnectionException(e.toString());
+        }
+
+        long wait = System.nanoTime() - start;
+        acquisitions.increment();
+        totalWaitNanos.add(wait);
+        maxWaitNanos.accumulateAndGet(wait, Math::max);
+
+        boolean tracked = captureStack && (leakThresholdMillis > 0 || reclaimThresholdMillis > 0);
+        Lease lease = new Lease(pc, tracked ? Thread.currentThread().getStackTrace() : null);
+        borrowed.add(lease);
+        return lease.proxy;
+    }
+
+    /**
+     * Metodo take
+     * Restituisce la connessione inattiva usata più di recente, scartando quelle scadute o non più valide,
+     * o ne apre una nuova se non ce ne sono.
+     */
+    private PooledConnection take() throws SQLException {
+        while (true) {
+            PooledConnection pc;
+            synchronized (idle) {
+                pc = idle.pollFirst();
+            }
+            if (pc == null)
+                return open();
+
+            long now = System.currentTimeMillis();
+            if (now - pc.createdAt > maxLifetimeMillis
+                    || (now - pc.lastUsed > VALIDATION_IDLE_MILLIS && !pc.isValid()))
+                discard(pc);
+            else
+                return pc;
+        }
+    }
+
+    /**
+     * Metodo open
+     * Apre una nuova connessione fisica.
+     */
+    private PooledConnection open() throws SQLException {
+        PooledConnection pc = new PooledConnection(DriverManager.getConnection(url));
+        created.increment();
+        return pc;
+    }
+
+    /**
+     * Metodo release
+     * Riporta nel pool la connessione del prestito lease, o la chiude se è scaduta o non riutilizzabile.
+     */
+    private void release(Lease lease) {
+        borrowed.remove(lease);
+        PooledConnection pc = lease.connection;
+        long now = System.currentTimeMillis();
+        if (lease.reported)
+            log("connessione segnalata come persa restituita dopo " + (now - lease.borrowedAt) + " ms" + origin(lease));
+
+        if (now - pc.createdAt <= maxLifetimeMillis && pc.reset()) {
+            pc.lastUsed = now;
+            synchronized (idle) {
+                idle.addFirst(pc);
+            }
+        } else {
+            discard(pc);
+        }
+        permits.release();
+    }
+
+    /**
+     * Metodo discard
+     * Chiude la connessione fisica, ignorando eventuali errori.
+     */
+    private void discard(PooledConnection pc) {
+        closed.increment();
+        try {
+            pc.physical.close();
+        } catch (SQLException e) {
+            // la connessione viene comunque abbandonata
+        }
+    }
+
+    /**
+     * Metodo housekeep
+     * Chiude le connessioni inattive da troppo tempo o scadute, segnala i prestiti troppo lunghi
+     * e revoca quelli che superano reclaimThresholdMillis.
+     */
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+        List<PooledConnection> evicted = new ArrayList<>();
+        synchronized (idle) {
+            Iterator<PooledConnection> it = idle.iterator();
+            while (it.hasNext()) {
+                PooledConnection pc = it.next();
+                if (now - pc.lastUsed > idleTimeoutMillis || now - pc.createdAt > maxLifetimeMillis) {
+                    it.remove();
+                    evicted.add(pc);
+                }
+            }
+        }
+        for (PooledConnection pc : evicted)
+            discard(pc);
+
+        for (Lease lease : borrowed) {
+            long held = now - lease.borrowedAt;
+            if (leakThresholdMillis > 0 && !lease.reported && held > leakThresholdMillis) {
+                lease.reported = true;
+                leaks.increment();
+                log("possibile perdita di connessione, in prestito da " + held + " ms" + origin(lease));
+            }
+            if (reclaimThresholdMillis > 0 && held > reclaimThresholdMillis && lease.revoke())
+                reclaim(lease, held);
+        }
+    }
+
+    /**
+     * Metodo reclaim
+     * Chiude la connessione del prestito revocato lease e ne libera il posto nel pool.
+     */
+    private void reclaim(Lease lease, long held) {
+        borrowed.remove(lease);
+        reclaimed.increment();
+        log("connessione persa recuperata dopo " + held + " ms di prestito" + origin(lease));
+        discard(lease.connection);
+        permits.release();
+    }
+
+    /**
+     * Metodo metrics
+     *
+     * @return stato e utilizzo correnti del pool
+     */
+    ConnectionPoolMetrics metrics() {
+        int idleCount;
+        synchronized (idle) {
+            idleCount = idle.size();
+        }
+        return new ConnectionPoolMetrics(borrowed.size(), idleCount, maxSize, acquisitions.sum(), timeouts.sum(),
+                totalWaitNanos.sum(), maxWaitNanos.get(), created.sum(), closed.sum(), leaks.sum(), reclaimed.sum());
+    }
+
+    /**
+     * Classe PooledConnection
+     * Connessione fisica gestita dal pool.
+     */
+    private static class PooledConnection {
+        final Connection physical; // connessione al database
+        final long createdAt = System.currentTimeMillis(); // istante di apertura
+        volatile long lastUsed = createdAt; // istante dell'ultima restituzione
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        /**
+         * Metodo isValid
+         * Indica se la connessione risponde entro VALIDATION_TIMEOUT_SECONDS.
+         */
+        boolean isValid() {
+            try {
+                return physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Metodo reset
+         * Annulla l'eventuale transazione aperta e ripristina l'autocommit.
+         *
+         * @return false se la connessione è chiusa o non può essere ripristinata
+         */
+        boolean reset() {
+            try {
+                if (physical.isClosed())
+                    return false;
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                physical.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Metodo log
+     * Stampa un messaggio del pool su una sola riga.
+     */
+    private static void log(String message) {
+        System.out.println("Pool connessioni: " + message);
+    }
+
+    /**
+     * Metodo origin
+     * Descrive su una sola riga l'origine del prestito lease: il thread e, se registrate,
+     * le prime REPORTED_FRAMES chiamate esterne al pool, dalla più interna.
+     */
+    private static String origin(Lease lease) {
+        StringBuilder text = new StringBuilder(" (thread ").append(lease.thread);
+        if (lease.origin != null) {
+            text.append(", ottenuta in ");
+            int reported = 0;
+            for (StackTraceElement frame : lease.origin) {
+                String name = frame.getClassName();
+                if (name.equals(Thread.class.getName()) || name.startsWith(ConnectionPool.class.getName())
+                        || name.equals(DbAccess.class.getName()))
+                    continue;
+                if (reported == REPORTED_FRAMES) {
+                    text.append(" < ...");
+                    break;
+                }
+                text.append(reported++ == 0 ? "" : " < ").append(frame);
+            }
+        }
+        return text.append(')').toString();
+    }
+
+    /**
+     * Classe Lease
+     * Singolo prestito di una connessione: il proxy restituito al chiamante inoltra le chiamate
+     * alla connessione fisica finché non viene chiuso, dopodiché le rifiuta.
+     */
+    private class Lease implements InvocationHandler {
+        final PooledConnection connection; // connessione prestata
+        final String thread = Thread.currentThread().getName(); // thread che ha ottenuto la connessione
+        final StackTraceElement[] origin; // stack del prestito, null se non registrato
+        final long borrowedAt = System.currentTimeMillis(); // istante del prestito
+        final Connection proxy; // connessione consegnata al chiamante
+        volatile boolean reported; // true se il prestito è già stato segnalato come perdita
+        private boolean returned; // true dopo la close del proxy o la revoca del prestito
+
+        Lease(PooledConnection connection, StackTraceElement[] origin) {
+            this.connection = connection;
+            this.origin = origin;
+            this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, this);
+        }
+
+        /**
+         * Metodo revoke
+         * Revoca il prestito, se il proxy non è già stato chiuso.
+         *
+         * @return true se il prestito è stato revocato, false se era già terminato
+         */
+        synchronized boolean revoke() {
+            if (returned)
+                return false;
+            returned = true;
+            return true;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (this) {
+                        if (returned)
+                            return null;
+                        returned = true;
+                    }
+                    release(this);
+                    return null;
+                case "isClosed":
+                    synchronized (this) {
+                        if (returned)
+                            return true;
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Connessione del pool " + connection.physical;
+                default:
+                    synchronized (this) {
+                        if (returned)
+                            throw new SQLException("Connessione già restituita al pool");
+                    }
+            }
+            try {
+                return method.invoke(connection.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
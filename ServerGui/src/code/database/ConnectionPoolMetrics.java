@@ -0,0 +1,149 @@
+package code.database;
+
+/**
+ * Classe ConnectionPoolMetrics
+ * Fotografia immutabile dello stato e dell'utilizzo di un ConnectionPool.
+ */
+public class ConnectionPoolMetrics {
+    private final int active; // connessioni in prestito
+    private final int idle; // connessioni inattive nel pool
+    private final int maxSize; // numero massimo di connessioni
+    private final long acquisitions; // prestiti concessi
+    private final long timeouts; // richieste scadute senza ottenere una connessione
+    private final long totalWaitNanos; // attesa complessiva dei prestiti concessi
+    private final long maxWaitNanos; // attesa massima di un prestito
+    private final long created; // connessioni fisiche aperte
+    private final long closed; // connessioni fisiche chiuse
+    private final long leaks; // prestiti segnalati come possibili perdite
+    private final long reclaimed; // prestiti revocati, con la chiusura della connessione
+
+    /**
+     * Costruttore
+     */
+    ConnectionPoolMetrics(int active, int idle, int maxSize, long acquisitions, long timeouts,
+            long totalWaitNanos, long maxWaitNanos, long created, long closed, long leaks, long reclaimed) {
+        this.active = active;
+        this.idle = idle;
+        this.maxSize = maxSize;
+        this.acquisitions = acquisitions;
+        this.timeouts = timeouts;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.created = created;
+        this.closed = closed;
+        this.leaks = leaks;
+        this.reclaimed = reclaimed;
+    }
+
+    /**
+     * Metodo getActive
+     *
+     * @return numero di connessioni in prestito
+     */
+    public int getActive() {
+        return active;
+    }
+
+    /**
+     * Metodo getIdle
+     *
+     * @return numero di connessioni inattive nel pool
+     */
+    public int getIdle() {
+        return idle;
+    }
+
+    /**
+     * Metodo getMaxSize
+     *
+     * @return numero massimo di connessioni del pool
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Metodo getAcquisitions
+     *
+     * @return numero di prestiti concessi
+     */
+    public long getAcquisitions() {
+        return acquisitions;
+    }
+
+    /**
+     * Metodo getTimeouts
+     *
+     * @return numero di richieste scadute senza ottenere una connessione
+     */
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * Metodo getAverageWaitMillis
+     *
+     * @return attesa media, in millisecondi, dei prestiti concessi
+     */
+    public double getAverageWaitMillis() {
+        return acquisitions == 0 ? 0 : totalWaitNanos / 1e6 / acquisitions;
+    }
+
+    /**
+     * Metodo getMaxWaitMillis
+     *
+     * @return attesa massima, in millisecondi, di un prestito
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos / 1e6;
+    }
+
+    /**
+     * Metodo getCreated
+     *
+     * @return numero di connessioni fisiche aperte
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * Metodo getClosed
+     *
+     * @return numero di connessioni fisiche chiuse
+     */
+    public long getClosed() {
+        return closed;
+    }
+
+    /**
+     * Metodo getLeaks
+     *
+     * @return numero di prestiti segnalati come possibili perdite
+     */
+    public long getLeaks() {
+        return leaks;
+    }
+
+    /**
+     * Metodo getReclaimed
+     *
+     * @return numero di prestiti revocati perché durati troppo a lungo
+     */
+    public long getReclaimed() {
+        return reclaimed;
+    }
+
+    /**
+     * Metodo toString
+     *
+     * @return descrizione delle metriche
+     */
+    @Override
+    public String toString() {
+        return String.format("connessioni attive: %d, inattive: %d, massimo: %d, prestiti: %d, timeout: %d, "
+                        + "attesa media: %.3f ms, attesa massima: %.3f ms, aperte: %d, chiuse: %d, perdite: %d, recuperate: %d",
+                active, idle, maxSize, acquisitions, timeouts, getAverageWaitMillis(), getMaxWaitMillis(),
+                created, closed, leaks, reclaimed);
+    }
+}
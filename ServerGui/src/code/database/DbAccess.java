@@ -1,15 +1,54 @@
 package code.database;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Gestisce l'accesso al DB per la lettura dei dati di training
+ * Gestisce l'accesso al DB per la lettura dei dati di training.
+ * Le connessioni sono prestate da un ConnectionPool condiviso da tutte le istanze
+ * con la stessa stringa di connessione; il driver viene caricato una sola volta.
  *
  */
 public class DbAccess {
 
+    /** Pool condiviso per ogni stringa di connessione */
+    private static final Map<String, ConnectionPool> POOLS = new ConcurrentHashMap<>();
+    /** Numero massimo di connessioni del pool, letto dalla proprietà di sistema hclus.db.poolSize (di default 10) */
+    private static final int POOL_SIZE = Integer.getInteger("hclus.db.poolSize", 10);
+    /**
+     * Attesa massima, in millisecondi, di una connessione libera,
+     * letta dalla proprietà di sistema hclus.db.acquireTimeoutMillis (di default 30 secondi)
+     */
+    private static final long ACQUIRE_TIMEOUT_MILLIS = Long.getLong("hclus.db.acquireTimeoutMillis", 30_000);
+    /**
+     * Inattività, in millisecondi, oltre la quale una connessione è chiusa,
+     * letta dalla proprietà di sistema hclus.db.idleTimeoutMillis (di default 10 minuti)
+     */
+    private static final long IDLE_TIMEOUT_MILLIS = Long.getLong("hclus.db.idleTimeoutMillis", 600_000);
+    /**
+     * Durata massima, in millisecondi, di una connessione,
+     * letta dalla proprietà di sistema hclus.db.maxLifetimeMillis (di default 30 minuti)
+     */
+    private static final long MAX_LIFETIME_MILLIS = Long.getLong("hclus.db.maxLifetimeMillis", 1_800_000);
+    /**
+     * Durata, in millisecondi, di un prestito oltre la quale è segnalata una possibile perdita,
+     * letta dalla proprietà di sistema hclus.db.leakDetectionMillis (di default un minuto, 0 per disattivare)
+     */
+    private static final long LEAK_DETECTION_MILLIS = Long.getLong("hclus.db.leakDetectionMillis", 60_000);
+    /**
+     * Durata, in millisecondi, di un prestito oltre la quale la connessione è considerata persa, chiusa
+     * e restituita al pool, letta dalla proprietà di sistema hclus.db.leakReclaimMillis
+     * (di default 30 minuti, 0 per disattivare)
+     */
+    private static final long LEAK_RECLAIM_MILLIS = Long.getLong("hclus.db.leakReclaimMillis", 1_800_000);
+    /**
+     * true per riportare nelle segnalazioni delle perdite lo stack del prestito, letto dalla proprietà di sistema
+     * hclus.db.leakStackTrace (di default false: lo stack andrebbe registrato ad ogni prestito)
+     */
+    private static final boolean LEAK_STACK_TRACE = Boolean.getBoolean("hclus.db.leakStackTrace");
+
     /** Nome del driver da utilizzare */
 	private String DRIVER_CLASS_NAME = "com.mysql.cj.jdbc.Driver";
     /** Nome del DBMS da utilizzare */
@@ -24,50 +63,74 @@ public class DbAccess {
     private  String USER_ID = "MapUser";
     /** Password per l'accesso al database */
     private  String PASSWORD = "map";
-    /** Connessione al database */
+    /** Pool da cui sono prestate le connessioni */
+    private ConnectionPool pool;
+    /** Ultima connessione ottenuta con getConnection */
     private Connection conn;
 
     /**
-     * Inizializza la connessione al database.
+     * Inizializza il pool di connessioni al database, caricando il driver
+     * la prima volta che la stringa di connessione viene usata.
      *
-     * @throws DatabaseConnectionException Eccezione lanciata se la connessione al database fallisce.
+     * @throws DatabaseConnectionException Eccezione lanciata se il driver non è disponibile.
      */
     public void initConnection() throws DatabaseConnectionException
     {
-        try {
-            Class.forName(DRIVER_CLASS_NAME);
-        } catch(ClassNotFoundException e) {
-            System.out.println("[!] Driver not found: " + e.getMessage());
-            throw new DatabaseConnectionException(e.toString());
-        }
+        if (pool != null)
+            return;
         String connectionString = DBMS + "://" + SERVER + ":" + PORT + "/" + DATABASE
                 + "?user=" + USER_ID + "&password=" + PASSWORD + "&serverTimezone=UTC";
 
-        try {
-            conn = DriverManager.getConnection(connectionString);
-        } catch(SQLException e) {
-            throw new DatabaseConnectionException(e.toString());
+        ConnectionPool shared = POOLS.get(connectionString);
+        if (shared == null) {
+            try {
+                Class.forName(DRIVER_CLASS_NAME);
+            } catch(ClassNotFoundException e) {
+                System.out.println("[!] Driver not found: " + e.getMessage());
+                throw new DatabaseConnectionException(e.toString());
+            }
+            shared = POOLS.computeIfAbsent(connectionString, url -> new ConnectionPool(url, POOL_SIZE,
+                    ACQUIRE_TIMEOUT_MILLIS, IDLE_TIMEOUT_MILLIS, MAX_LIFETIME_MILLIS, LEAK_DETECTION_MILLIS,
+                    LEAK_RECLAIM_MILLIS, LEAK_STACK_TRACE));
         }
+        pool = shared;
     }
 
     /**
-     * Restituisce la connessione al database.
+     * Presta una connessione del pool; va restituita chiamandone close
+     * (o con closeConnection, se è l'ultima ottenuta).
      *
      * @return Connessione al database.
-     * @throws DatabaseConnectionException Eccezione lanciata se la connessione al database fallisce.
+     * @throws DatabaseConnectionException Eccezione lanciata se non è possibile ottenere una connessione.
      */
     public Connection getConnection() throws DatabaseConnectionException{
         this.initConnection();
+        conn = pool.borrow();
         return conn;
     }
 
     /**
-     * Chiude la connessione al database.
+     * Restituisce al pool l'ultima connessione ottenuta con getConnection.
      *
      * @throws SQLException Eccezione lanciata se si verifica un errore durante la chiusura della connessione.
      */
     public void closeConnection() throws SQLException {
-        conn.close();
+        if (conn != null) {
+            conn.close();
+            conn = null;
+        }
+    }
+
+    /**
+     * Restituisce le metriche del pool di connessioni: connessioni attive e inattive,
+     * prestiti, attese e perdite segnalate.
+     *
+     * @return Metriche del pool.
+     * @throws DatabaseConnectionException Eccezione lanciata se il driver non è disponibile.
+     */
+    public ConnectionPoolMetrics getPoolMetrics() throws DatabaseConnectionException {
+        this.initConnection();
+        return pool.metrics();
     }
 
 }
@@ -0,0 +1,290 @@
+package code.database;
+
+import code.data.DataBuilder;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Classe PartitionedTableLoader
+ * Legge gli esempi distinti di una tabella in parallelo, dividendola in intervalli di valori di una colonna:
+ * ogni lavoratore, eseguito dal pool condiviso EXECUTOR, prende una connessione dal pool del DbAccess
+ * del chiamante e legge una partizione alla volta in un proprio DataBuilder;
+ * le partizioni sono poi riunite nell'ordine degli intervalli, senza copiarne i valori.
+ * Se la tabella ha una chiave primaria intera gli intervalli sono di chiave e le righe sono già distinte
+ * (la chiave fa parte di SELECT DISTINCT *). Altrimenti, se tutte le colonne sono attributi numerici,
+ * gli intervalli sono di valori del primo attributo: righe uguali cadono nella stessa partizione,
+ * quindi ogni thread scarta i duplicati della propria con una tabella hash, in parallelo con gli altri.
+ * Le righe con un attributo nullo, letto come 0, non sono confrontabili per valore con le altre:
+ * formano un'ultima partizione i cui duplicati sono scartati dal DBMS, come in SELECT DISTINCT *.
+ */
+class PartitionedTableLoader {
+    /** partizioni per thread, perché partizioni di dimensione diversa non lascino thread inattivi */
+    private static final int PARTITIONS_PER_THREAD = 4;
+    /** righe lette tra due aggiornamenti del contatore condiviso */
+    private static final int BATCH = 4096;
+    /** tipi SQL delle chiavi primarie su cui dividere la tabella */
+    private static final Pattern INTEGER_TYPE = Pattern.compile("(TINY|SMALL|MEDIUM|BIG)?INT( UNSIGNED)?");
+
+    /** pool di thread condiviso dalle letture; i thread inattivi terminano dopo un minuto */
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger created = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "hclus-load-" + created.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    private final DbAccess db; // accesso al database da cui sono prese le connessioni
+    private final String table; // nome della tabella
+    private final TableSchema schema; // attributi della tabella
+    private final String column; // colonna su cui è divisa la tabella
+    private final Number[] bounds; // estremi inferiori delle partizioni dalla seconda in poi
+    private final boolean distinct; // true se vanno scartati i duplicati, letti a parte quelli con attributi nulli
+    private final int threads; // numero di connessioni usate
+    private final int fetchSize; // righe richieste al database per ogni lettura
+
+    /**
+     * Costruttore
+     */
+    private PartitionedTableLoader(DbAccess db, String table, TableSchema schema, String column, Number[] bounds,
+            boolean distinct, int threads, int fetchSize) {
+        this.db = db;
+        this.table = table;
+        this.schema = schema;
+        this.column = column;
+        this.bounds = bounds;
+        this.distinct = distinct;
+        this.threads = threads;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Restituisce un lettore parallelo della tabella, o null se la tabella va letta in un solo flusso:
+     * con meno di due thread, con meno di minRows righe stimate o se non c'è una colonna su cui dividerla.
+     *
+     * @param db Accesso al database
+     * @param table Nome della tabella
+     * @param schema Attributi della tabella, tutti numerici
+     * @param threads Numero di connessioni da usare
+     * @param minRows Numero stimato di righe sotto il quale la tabella non è divisa
+     * @param fetchSize Righe richieste al database per ogni lettura
+     * @return Lettore della tabella, o null
+     * @throws SQLException In caso di errore nella interrogazione
+     * @throws DatabaseConnectionException In caso di errore nella connessione al database
+     */
+    static PartitionedTableLoader of(DbAccess db, String table, TableSchema schema, int threads, long minRows, int fetchSize)
+            throws SQLException, DatabaseConnectionException {
+        if (threads < 2 || schema.getNumberOfAttributes() == 0)
+            return null;
+        SchemaCatalog catalog = SchemaCatalog.get();
+        if (catalog.getEstimatedRows(db, table) < minRows)
+            return null;
+
+        List<SchemaCatalog.ColumnDefinition> columns = catalog.getColumns(db, table);
+        SchemaCatalog.ColumnDefinition key = null;
+        int keys = 0;
+        for (SchemaCatalog.ColumnDefinition c : columns) {
+            if (c.isPrimaryKey()) {
+                key = c;
+                keys++;
+            }
+        }
+
+        int partitions = threads * PARTITIONS_PER_THREAD;
+        boolean integerKey = keys == 1 && INTEGER_TYPE.matcher(key.getTypeName()).matches();
+        String column;
+        if (integerKey)
+            column = key.getName();
+        else if (columns.size() == schema.getNumberOfAttributes())
+            column = schema.getColumn(0).getColumnName();
+        else
+            return null; // le colonne non numeriche contano per DISTINCT ma non sono lette
+
+        try (Connection con = db.getConnection();
+             Statement stmt = con.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(" + column + "), MAX(" + column + ") FROM " + table)) {
+            if (!rs.next())
+                return null;
+            Number[] bounds = new Number[partitions - 1];
+            if (integerKey) {
+                long min = rs.getLong(1);
+                if (rs.wasNull())
+                    return null;
+                long max = rs.getLong(2);
+                if (min == max)
+                    return null;
+                for (int p = 1; p < partitions; p++)
+                    bounds[p - 1] = min + Math.round(((double) max - min) * p / partitions);
+            } else {
+                double min = rs.getDouble(1);
+                if (rs.wasNull())
+                    return null;
+                double max = rs.getDouble(2);
+                if (min == max)
+                    return null;
+                for (int p = 1; p < partitions; p++)
+                    bounds[p - 1] = min + (max - min) * p / partitions;
+            }
+            return new PartitionedTableLoader(db, table, schema, column, bounds, !integerKey, threads, fetchSize);
+        } catch (SQLException e) {
+            // ad esempio una chiave BIGINT UNSIGNED fuori dall'intervallo di long: si legge in un solo flusso
+            return null;
+        }
+    }
+
+    /**
+     * Legge la tabella.
+     *
+     * @param progress Riceve il numero di righe lette ogni progressInterval righe e al termine
+     * @param progressInterval Righe lette tra due segnalazioni di avanzamento
+     * @return DataBuilder con le transazioni distinte della tabella
+     * @throws SQLException In caso di errore nella interrogazione
+     * @throws EmptySetException In caso di tabella vuota
+     * @throws DatabaseConnectionException In caso di errore nella connessione al database
+     */
+    DataBuilder load(LongConsumer progress, long progressInterval) throws SQLException, EmptySetException, DatabaseConnectionException {
+        // senza chiave, dopo gli intervalli c'è la partizione delle righe con attributi nulli
+        int partitions = bounds.length + (distinct ? 2 : 1);
+        DataBuilder[] parts = new DataBuilder[partitions];
+        AtomicInteger next = new AtomicInteger();
+        AtomicLong rows = new AtomicLong();
+        AtomicBoolean failed = new AtomicBoolean();
+
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(EXECUTOR.submit(() -> {
+                // ogni lavoratore usa una propria connessione del pool del chiamante
+                try (Connection con = db.getConnection()) {
+                    for (int p = next.getAndIncrement(); p < partitions && !failed.get(); p = next.getAndIncrement())
+                        parts[p] = fetch(con, p, rows, failed, progress, progressInterval);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (ExecutionException e) {
+                failed.set(true);
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException)
+                    throw (SQLException) cause;
+                if (cause instanceof DatabaseConnectionException)
+                    throw (DatabaseConnectionException) cause;
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException) cause;
+                throw (Error) cause;
+            } catch (InterruptedException e) {
+                failed.set(true);
+                Thread.currentThread().interrupt();
+                throw new SQLException("Lettura della tabella " + table + " interrotta", e);
+            }
+        }
+
+        long total = rows.get();
+        if (total == 0)
+            throw new EmptySetException("La tabella " + table + " è vuota.\n");
+        if (total % progressInterval != 0)
+            progress.accept(total);
+
+        DataBuilder transazioni = new DataBuilder(schema.getNumberOfAttributes());
+        for (DataBuilder part : parts)
+            transazioni.append(part);
+        return transazioni;
+    }
+
+    /**
+     * Legge la partizione p con la connessione con.
+     */
+    private DataBuilder fetch(Connection con, int p, AtomicLong rows, AtomicBoolean failed,
+            LongConsumer progress, long progressInterval) throws SQLException {
+        int numberOfAttributes = schema.getNumberOfAttributes();
+        // i duplicati delle righe con attributi nulli sono già scartati dal DBMS
+        DataBuilder part = new DataBuilder(numberOfAttributes, distinct && p <= bounds.length);
+        try (PreparedStatement stmt = con.prepareStatement(query(p), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(fetchSize);
+            int parameter = 1;
+            if (p > 0 && p <= bounds.length)
+                stmt.setObject(parameter++, bounds[p - 1]);
+            if (p < bounds.length)
+                stmt.setObject(parameter, bounds[p]);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                double[] values = new double[numberOfAttributes];
+                int batch = 0;
+                while (rs.next()) {
+                    for (int i = 0; i < numberOfAttributes; i++)
+                        values[i] = rs.getDouble(i + 1);
+                    part.addExample(values);
+                    if (++batch == BATCH) {
+                        count(rows, batch, progress, progressInterval);
+                        batch = 0;
+                        if (failed.get())
+                            break;
+                    }
+                }
+                count(rows, batch, progress, progressInterval);
+            }
+        }
+        return part;
+    }
+
+    /**
+     * Aggiunge batch righe al contatore condiviso, segnalando l'avanzamento
+     * quando viene superato un multiplo di progressInterval.
+     */
+    private static void count(AtomicLong rows, int batch, LongConsumer progress, long progressInterval) {
+        long total = rows.addAndGet(batch);
+        if (total / progressInterval != (total - batch) / progressInterval)
+            progress.accept(total);
+    }
+
+    /**
+     * Restituisce l'interrogazione che legge gli attributi della partizione p: con la chiave la prima partizione
+     * contiene anche le righe con la colonna nulla e l'ultima non ha estremo superiore; senza chiave le partizioni
+     * degli intervalli escludono le righe con attributi nulli, lette distinte dall'ultima.
+     */
+    private String query(int p) {
+        StringBuilder sql = new StringBuilder(p > bounds.length ? "SELECT DISTINCT " : "SELECT ");
+        StringBuilder nulls = new StringBuilder();
+        for (int i = 0; i < schema.getNumberOfAttributes(); i++) {
+            String name = schema.getColumn(i).getColumnName();
+            sql.append(i == 0 ? "" : ", ").append(name);
+            nulls.append(i == 0 ? "" : " OR ").append(name).append(" IS NULL");
+        }
+        sql.append(" FROM ").append(table).append(" WHERE ");
+        if (p > bounds.length)
+            return sql.append(nulls).toString();
+
+        if (p == 0) {
+            sql.append(column).append(" < ?");
+            if (!distinct)
+                sql.append(" OR ").append(column).append(" IS NULL");
+        } else if (p == bounds.length)
+            sql.append(column).append(" >= ?");
+        else
+            sql.append(column).append(" >= ? AND ").append(column).append(" < ?");
+        if (distinct)
+            sql.append(" AND NOT (").append(nulls).append(")");
+        return sql.toString();
+    }
+}
@@ -0,0 +1,272 @@
+package code.database;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Classe SchemaCatalog
+ * Catalogo, condiviso dal server, delle tabelle del database e dei tipi delle loro colonne.
+ * Il catalogo è letto con una sola interrogazione su information_schema (o, se il DBMS non la supporta,
+ * con DatabaseMetaData) e riutilizzato per TTL_MILLIS; la richiesta di una tabella assente ne provoca
+ * la rilettura, al più una volta ogni MISS_REFRESH_MILLIS, e invalidate lo scarta esplicitamente.
+ */
+public class SchemaCatalog {
+    /**
+     * Durata, in millisecondi, di validità del catalogo, letta dalla proprietà di sistema
+     * hclus.schema.ttlMillis (di default un minuto)
+     */
+    private static final long TTL_MILLIS = Long.getLong("hclus.schema.ttlMillis", 60_000);
+    /** Intervallo minimo tra due riletture provocate da tabelle assenti */
+    private static final long MISS_REFRESH_MILLIS = 1000;
+
+    /** Interrogazione che restituisce colonne e tipi di tutte le tabelle del database corrente */
+    private static final String COLUMNS_QUERY =
+            "SELECT c.TABLE_NAME, c.COLUMN_NAME, c.DATA_TYPE, c.COLUMN_TYPE, c.COLUMN_KEY, t.TABLE_ROWS"
+            + " FROM information_schema.COLUMNS c JOIN information_schema.TABLES t"
+            + " ON t.TABLE_SCHEMA = c.TABLE_SCHEMA AND t.TABLE_NAME = c.TABLE_NAME"
+            + " WHERE c.TABLE_SCHEMA = DATABASE() AND t.TABLE_TYPE = 'BASE TABLE'"
+            + " ORDER BY c.TABLE_NAME, c.ORDINAL_POSITION";
+
+    /** Interrogazione che restituisce l'istante dell'ultima modifica di una tabella del database corrente */
+    private static final String UPDATE_TIME_QUERY =
+            "SELECT UPDATE_TIME FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+
+    /** Catalogo condiviso */
+    private static final SchemaCatalog CATALOG = new SchemaCatalog();
+
+    /** Ultimo catalogo letto, null se da leggere */
+    private volatile Snapshot snapshot;
+
+    /**
+     * Costruttore privato: si usa il catalogo condiviso
+     */
+    private SchemaCatalog() {
+    }
+
+    /**
+     * Restituisce il catalogo condiviso.
+     *
+     * @return Catalogo condiviso dal server
+     */
+    public static SchemaCatalog get() {
+        return CATALOG;
+    }
+
+    /**
+     * Restituisce i nomi delle tabelle del database, in ordine alfabetico.
+     *
+     * @param db Accesso al database da usare se il catalogo va letto
+     * @return Nomi delle tabelle
+     * @throws SQLException In caso di errore nella interrogazione
+     * @throws DatabaseConnectionException In caso di errore nella connessione al database
+     */
+    public List<String> getTableNames(DbAccess db) throws SQLException, DatabaseConnectionException {
+        return current(db).tables;
+    }
+
+    /**
+     * Restituisce le colonne della tabella specificata, nell'ordine della tabella;
+     * la lista è vuota se la tabella non esiste.
+     *
+     * @param db Accesso al database da usare se il catalogo va letto
+     * @param tableName Nome della tabella
+     * @return Colonne della tabella
+     * @throws SQLException In caso di errore nella interrogazione
+     * @throws DatabaseConnectionException In caso di errore nella connessione al database
+     */
+    public List<ColumnDefinition> getColumns(DbAccess db, String tableName) throws SQLException, DatabaseConnectionException {
+        Snapshot s = current(db);
+        List<ColumnDefinition> columns = s.columns.get(tableName);
+        if (columns == null && System.currentTimeMillis() - s.loadedAt > MISS_REFRESH_MILLIS) {
+            s = refresh(db, s);
+            columns = s.columns.get(tableName);
+        }
+        return columns == null ? Collections.emptyList() : columns;
+    }
+
+    /**
+     * Restituisce il numero di righe della tabella specificata stimato dal DBMS.
+     *
+     * @param db Accesso al database da usare se il catalogo va letto
+     * @param tableName Nome della tabella
+     * @return Numero stimato di righe, -1 se la stima non è disponibile
+     * @throws SQLException In caso di errore nella interrogazione
+     * @throws DatabaseConnectionException In caso di errore nella connessione al database
+     */
+    public long getEstimatedRows(DbAccess db, String tableName) throws SQLException, DatabaseConnectionException {
+        return current(db).rows.getOrDefault(tableName, -1L);
+    }
+
+    /**
+     * Restituisce l'istante dell'ultima modifica della tabella specificata, letto ad ogni chiamata da
+     * information_schema.TABLES e non dal catalogo. Il valore ha la precisione del secondo, InnoDB non lo conserva
+     * dopo un riavvio del DBMS e MySQL 8 lo aggiorna solo ogni information_schema_stats_expiry secondi,
+     * che va impostato a 0 perché le modifiche siano riconosciute subito.
+     *
+     * @param db Accesso al database
+     * @param tableName Nome della tabella
+     * @return Millisecondi dell'ultima modifica, -1 se il DBMS non li fornisce
+     * @throws SQLException In caso di errore nella preparazione dell'interrogazione
+     * @throws DatabaseConnectionException In caso di errore nella connessione al database
+     */
+    public long getUpdateTime(DbAccess db, String tableName) throws SQLException, DatabaseConnectionException {
+        try (Connection con = db.getConnection(); PreparedStatement stmt = con.prepareStatement(UPDATE_TIME_QUERY)) {
+            stmt.setString(1, tableName);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    Timestamp time = rs.getTimestamp(1);
+                    if (time != null)
+                        return time.getTime();
+                }
+            } catch (SQLException e) {
+                // DBMS senza information_schema
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Scarta il catalogo, che sarà riletto alla prossima richiesta.
+     */
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    /**
+     * Restituisce il catalogo corrente, rileggendolo se assente o scaduto.
+     */
+    private Snapshot current(DbAccess db) throws SQLException, DatabaseConnectionException {
+        Snapshot s = snapshot;
+        if (s == null || System.currentTimeMillis() - s.loadedAt > TTL_MILLIS)
+            s = refresh(db, s);
+        return s;
+    }
+
+    /**
+     * Rilegge il catalogo, se nel frattempo un altro thread non lo ha già sostituito a stale.
+     */
+    private synchronized Snapshot refresh(DbAccess db, Snapshot stale) throws SQLException, DatabaseConnectionException {
+        Snapshot s = snapshot;
+        if (s != null && s != stale)
+            return s;
+
+        Map<String, List<ColumnDefinition>> columns = new LinkedHashMap<>();
+        Map<String, Long> rows = new HashMap<>();
+        try (Connection con = db.getConnection()) {
+            try (Statement stmt = con.createStatement(); ResultSet rs = stmt.executeQuery(COLUMNS_QUERY)) {
+                while (rs.next()) {
+                    // il tipo è riportato come nel TYPE_NAME di DatabaseMetaData.getColumns del driver MySQL
+                    String type = rs.getString("DATA_TYPE").toUpperCase();
+                    if (rs.getString("COLUMN_TYPE").toLowerCase().contains("unsigned"))
+                        type += " UNSIGNED";
+                    String table = rs.getString("TABLE_NAME");
+                    columns.computeIfAbsent(table, t -> new ArrayList<>())
+                            .add(new ColumnDefinition(rs.getString("COLUMN_NAME"), type, "PRI".equals(rs.getString("COLUMN_KEY"))));
+                    long estimate = rs.getLong("TABLE_ROWS");
+                    if (!rs.wasNull())
+                        rows.put(table, estimate);
+                }
+            } catch (SQLException e) {
+                // DBMS senza information_schema: senza chiavi primarie e stime delle righe
+                columns.clear();
+                rows.clear();
+                readMetaData(con.getMetaData(), columns);
+            }
+        }
+
+        for (Map.Entry<String, List<ColumnDefinition>> entry : columns.entrySet())
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        s = new Snapshot(System.currentTimeMillis(), Collections.unmodifiableList(new ArrayList<>(columns.keySet())), columns, rows);
+        snapshot = s;
+        return s;
+    }
+
+    /**
+     * Legge tabelle e colonne del database con DatabaseMetaData.
+     */
+    private static void readMetaData(DatabaseMetaData meta, Map<String, List<ColumnDefinition>> columns) throws SQLException {
+        try (ResultSet tables = meta.getTables(null, null, "%", new String[]{"TABLE"})) {
+            while (tables.next())
+                columns.put(tables.getString("TABLE_NAME"), new ArrayList<>());
+        }
+        try (ResultSet res = meta.getColumns(null, null, "%", null)) {
+            while (res.next()) {
+                List<ColumnDefinition> list = columns.get(res.getString("TABLE_NAME"));
+                if (list != null)
+                    list.add(new ColumnDefinition(res.getString("COLUMN_NAME"), res.getString("TYPE_NAME"), false));
+            }
+        }
+    }
+
+    /**
+     * Classe ColumnDefinition
+     * Nome e tipo SQL di una colonna.
+     */
+    public static class ColumnDefinition {
+        private final String name;
+        private final String typeName;
+        private final boolean primaryKey;
+
+        ColumnDefinition(String name, String typeName, boolean primaryKey) {
+            this.name = name;
+            this.typeName = typeName;
+            this.primaryKey = primaryKey;
+        }
+
+        /**
+         * Restituisce il nome della colonna.
+         *
+         * @return Nome della colonna
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Restituisce il tipo SQL della colonna, in maiuscolo.
+         *
+         * @return Tipo della colonna
+         */
+        public String getTypeName() {
+            return typeName;
+        }
+
+        /**
+         * Indica se la colonna fa parte della chiave primaria della tabella.
+         *
+         * @return true se la colonna fa parte della chiave primaria
+         */
+        public boolean isPrimaryKey() {
+            return primaryKey;
+        }
+    }
+
+    /**
+     * Classe Snapshot
+     * Catalogo letto in un certo istante, non modificabile.
+     */
+    private static class Snapshot {
+        final long loadedAt; // istante della lettura
+        final List<String> tables; // nomi delle tabelle
+        final Map<String, List<ColumnDefinition>> columns; // colonne di ogni tabella
+        final Map<String, Long> rows; // numero stimato di righe di ogni tabella
+
+        Snapshot(long loadedAt, List<String> tables, Map<String, List<ColumnDefinition>> columns, Map<String, Long> rows) {
+            this.loadedAt = loadedAt;
+            this.tables = tables;
+            this.columns = columns;
+            this.rows = rows;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package code.database;
 
+import code.data.Data;
+import code.data.DataBuilder;
 import code.data.Example;
 
 import java.sql.Connection;
@@ -8,11 +10,34 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.LongConsumer;
 
 /**
  * Gestisce l'accesso ai dati di una tabella.
  */
 public class TableData {
+    /** Righe lette tra due segnalazioni di avanzamento */
+    private static final long PROGRESS_INTERVAL = 100_000;
+
+    /**
+     * Numero di righe richieste al database per ogni lettura, letto dalla proprietà di sistema hclus.fetchSize;
+     * il valore predefinito Integer.MIN_VALUE attiva la lettura riga per riga (streaming) del driver MySQL.
+     * Con un valore positivo il driver MySQL legge a blocchi solo se la connessione ha useCursorFetch=true
+     */
+    private static final int FETCH_SIZE = Integer.getInteger("hclus.fetchSize", Integer.MIN_VALUE);
+
+    /**
+     * Numero di connessioni con cui una tabella è letta in parallelo, letto dalla proprietà di sistema
+     * hclus.load.parallelism (di default il numero di processori, al più 4); con 1 la tabella è letta in un solo flusso
+     */
+    private static final int LOAD_PARALLELISM = Integer.getInteger("hclus.load.parallelism",
+            Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Numero stimato di righe sotto il quale una tabella è letta in un solo flusso,
+     * letto dalla proprietà di sistema hclus.load.parallelMinRows (di default 100000)
+     */
+    private static final long PARALLEL_MIN_ROWS = Long.getLong("hclus.load.parallelMinRows", 100_000);
 
     /** Connessione al database */
     private DbAccess db;
@@ -26,6 +51,43 @@ public class TableData {
         this.db = db;
     }
 
+    /**
+     * Restituisce la versione della tabella specificata, un valore che cambia quando ne cambia il contenuto.
+     * Di default è l'istante dell'ultima modifica (SchemaCatalog.getUpdateTime), letto senza accedere alla tabella;
+     * il checksum calcolato da CHECKSUM TABLE, che legge l'intera tabella, va richiesto esplicitamente.
+     * Se il DBMS non fornisce il valore richiesto si usa il numero di righe.
+     *
+     * @param table Nome della tabella
+     * @param checksum true per usare il checksum, false per usare l'istante dell'ultima modifica
+     * @return Versione della tabella
+     * @throws SQLException In caso di errore nella interrogazione
+     * @throws DatabaseConnectionException In caso di errore nella connessione al database
+     */
+    public long getVersion(String table, boolean checksum) throws SQLException, DatabaseConnectionException {
+        if (!checksum) {
+            long updateTime = SchemaCatalog.get().getUpdateTime(db, table);
+            if (updateTime >= 0)
+                return updateTime;
+        }
+        try (Connection con = db.getConnection(); Statement stmt = con.createStatement()) {
+            if (checksum) {
+                try (ResultSet rs = stmt.executeQuery("CHECKSUM TABLE " + table)) {
+                    if (rs.next()) {
+                        long value = rs.getLong(2);
+                        if (!rs.wasNull())
+                            return value;
+                    }
+                } catch (SQLException e) {
+                    // DBMS senza CHECKSUM TABLE: si usa il numero di righe
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
     /**
      * Recupera le transazioni distinte dalla tabella specificata.
      *
@@ -36,37 +98,102 @@ public class TableData {
      * @throws MissingNumberException In presenza di attributi non numerici
      */
     public List<Example> getDistinctTransazioni(String table) throws SQLException, EmptySetException, MissingNumberException, DatabaseConnectionException {
-        List<Example> transazioni = new ArrayList<>();
-        Connection con = db.getConnection();
-        Statement stmt = null;
-        ResultSet rs = null;
-        TableSchema schema = new TableSchema(db, table);
+        Data data = loadDistinctTransazioni(table).build();
+        List<Example> transazioni = new ArrayList<>(data.getNumberOfExample());
+        for (int i = 0; i < data.getNumberOfExample(); i++)
+            transazioni.add(data.getExample(i));
+        return transazioni;
+    }
 
-        stmt = con.createStatement();
-        String query = "SELECT DISTINCT * FROM " + table;
-        rs = stmt.executeQuery(query);
+    /**
+     * Recupera le transazioni distinte dalla tabella specificata, copiandone i valori
+     * direttamente nell'array del dataset senza creare un Example per riga;
+     * l'avanzamento è stampato ogni PROGRESS_INTERVAL righe.
+     *
+     * @param table Nome della tabella
+     * @return DataBuilder con le transazioni della tabella
+     * @throws SQLException In caso di errore nella interrogazione
+     * @throws EmptySetException In caso di tabella vuota
+     * @throws MissingNumberException In presenza di attributi non numerici
+     */
+    public DataBuilder loadDistinctTransazioni(String table) throws SQLException, EmptySetException, MissingNumberException, DatabaseConnectionException {
+        return loadDistinctTransazioni(table, rows -> System.out.println("Tabella " + table + ": " + rows + " righe lette"));
+    }
 
-        if (!rs.isBeforeFirst()) { // Verifica se il ResultSet è vuoto
-            throw new EmptySetException("La tabella " + table + " è vuota.\n");
-        }
+    /**
+     * Recupera le transazioni distinte dalla tabella specificata leggendo il risultato in streaming:
+     * lo statement è forward-only e read-only, con la dimensione di fetch FETCH_SIZE, quindi il driver
+     * non carica in memoria l'intero risultato. Le posizioni delle colonne sono risolte una sola volta
+     * e i valori sono copiati direttamente nei blocchi di double del DataBuilder.
+     * Le tabelle con almeno PARALLEL_MIN_ROWS righe stimate sono lette, se possibile, da PartitionedTableLoader
+     * con LOAD_PARALLELISM connessioni in parallelo.
+     *
+     * @param table Nome della tabella
+     * @param progress riceve il numero di righe lette ogni PROGRESS_INTERVAL righe e al termine
+     * @return DataBuilder con le transazioni della tabella
+     * @throws SQLException In caso di errore nella interrogazione
+     * @throws EmptySetException In caso di tabella vuota
+     * @throws MissingNumberException In presenza di attributi non numerici
+     */
+    public DataBuilder loadDistinctTransazioni(String table, LongConsumer progress) throws SQLException, EmptySetException, MissingNumberException, DatabaseConnectionException {
+        TableSchema schema = new TableSchema(db, table);
+        int numberOfAttributes = schema.getNumberOfAttributes();
+        TableSchema.Column nonNumeric = null;
+        for (int i = 0; i < numberOfAttributes && nonNumeric == null; i++)
+            if (!schema.getColumn(i).isNumber())
+                nonNumeric = schema.getColumn(i);
 
-        while (rs.next()) {
-            Example example = new Example();
-            for (int i = 0; i < schema.getNumberOfAttributes(); i++) {
-                TableSchema.Column column = schema.getColumn(i);
-                if (!column.isNumber()) {
-                    throw new MissingNumberException("Attributo non numerico trovato: " + column.getColumnName() + "\n");
+        if (nonNumeric == null) {
+            PartitionedTableLoader loader = PartitionedTableLoader.of(db, table, schema, LOAD_PARALLELISM, PARALLEL_MIN_ROWS, FETCH_SIZE);
+            if (loader != null) {
+                try {
+                    return loader.load(progress, PROGRESS_INTERVAL);
+                } catch (SQLException e) {
+                    SchemaCatalog.get().invalidate();
+                    throw e;
                 }
-                example.add(rs.getDouble(column.getColumnName()));
             }
-            transazioni.add(example);
         }
 
-        rs.close();
-        stmt.close();
-        db.closeConnection();
+        try (Connection con = db.getConnection()) {
+            if (nonNumeric != null) {
+                // come nella lettura riga per riga, una tabella vuota è segnalata prima dell'attributo non numerico
+                try (Statement stmt = con.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT 1 FROM " + table + " LIMIT 1")) {
+                    if (!rs.next())
+                        throw new EmptySetException("La tabella " + table + " è vuota.\n");
+                }
+                throw new MissingNumberException("Attributo non numerico trovato: " + nonNumeric.getColumnName() + "\n");
+            }
+
+            DataBuilder transazioni = new DataBuilder(numberOfAttributes);
+            try (Statement stmt = con.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(FETCH_SIZE);
+                try (ResultSet rs = stmt.executeQuery("SELECT DISTINCT * FROM " + table)) {
+                    int[] columns = new int[numberOfAttributes];
+                    for (int i = 0; i < numberOfAttributes; i++)
+                        columns[i] = rs.findColumn(schema.getColumn(i).getColumnName());
 
-        return transazioni;
+                    double[] values = new double[numberOfAttributes];
+                    long rows = 0;
+                    while (rs.next()) {
+                        for (int i = 0; i < numberOfAttributes; i++)
+                            values[i] = rs.getDouble(columns[i]);
+                        transazioni.addExample(values);
+                        if (++rows % PROGRESS_INTERVAL == 0)
+                            progress.accept(rows);
+                    }
+                    if (rows == 0)
+                        throw new EmptySetException("La tabella " + table + " è vuota.\n");
+                    if (rows % PROGRESS_INTERVAL != 0)
+                        progress.accept(rows);
+                }
+            }
+            return transazioni;
+        } catch (SQLException e) {
+            // le colonne lette dal catalogo potrebbero non corrispondere più alla tabella
+            SchemaCatalog.get().invalidate();
+            throw e;
+        }
     }
 }
-
@@ -1,12 +1,9 @@
 package code.database;
 
-import java.sql.Connection;
-import java.sql.DatabaseMetaData;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Classe TableSchema
@@ -44,8 +41,21 @@ public class TableSchema {
 	}
 	List<Column> tableSchema=new ArrayList<Column>();
 
+	/** Corrispondenza tra i tipi SQL e i tipi Java degli attributi */
+	//http://java.sun.com/j2se/1.3/docs/guide/jdbc/getstart/mapping.html
+	private static final Map<String,String> SQL_JAVA_TYPES = Map.of(
+			"CHAR","string",
+			"VARCHAR","string",
+			"LONGVARCHAR","string",
+			"BIT","string",
+			"SHORT","number",
+			"INT","number",
+			"LONG","number",
+			"FLOAT","number",
+			"DOUBLE","number");
+
 	/** Costruttore
-	 * Inizializza l'attributo db.
+	 * Inizializza l'attributo db e legge le colonne della tabella dal SchemaCatalog condiviso.
 	 *
 	 * @param db Connessione al database
 	 * @param tableName Nome della tabella
@@ -54,30 +64,11 @@ public class TableSchema {
 	 */
 	public TableSchema(DbAccess db, String tableName) throws SQLException, DatabaseConnectionException{
 		this.db=db;
-		HashMap<String,String> mapSQL_JAVATypes=new HashMap<String, String>();
-		//http://java.sun.com/j2se/1.3/docs/guide/jdbc/getstart/mapping.html
-		mapSQL_JAVATypes.put("CHAR","string");
-		mapSQL_JAVATypes.put("VARCHAR","string");
-		mapSQL_JAVATypes.put("LONGVARCHAR","string");
-		mapSQL_JAVATypes.put("BIT","string");
-		mapSQL_JAVATypes.put("SHORT","number");
-		mapSQL_JAVATypes.put("INT","number");
-		mapSQL_JAVATypes.put("LONG","number");
-		mapSQL_JAVATypes.put("FLOAT","number");
-		mapSQL_JAVATypes.put("DOUBLE","number");
-
-		Connection con=db.getConnection();
-		DatabaseMetaData meta = con.getMetaData();
-	    ResultSet res = meta.getColumns(null, null, tableName, null);
-
-	    while (res.next()) {
-	        if(mapSQL_JAVATypes.containsKey(res.getString("TYPE_NAME")))
-	       		 tableSchema.add(new Column(
-	       				 res.getString("COLUMN_NAME"),
-	       				 mapSQL_JAVATypes.get(res.getString("TYPE_NAME")))
-	       				 );
-	    }
-	    res.close();
+		for (SchemaCatalog.ColumnDefinition column : SchemaCatalog.get().getColumns(db, tableName)) {
+			String type = SQL_JAVA_TYPES.get(column.getTypeName());
+			if (type != null)
+				tableSchema.add(new Column(column.getName(), type));
+		}
 	}
 
 	/**
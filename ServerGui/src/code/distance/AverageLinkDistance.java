@@ -2,11 +2,8 @@ package code.distance;
 
 import code.clustering.Cluster;
 import code.data.Data;
-import code.data.Example;
 import code.data.InvalidSizeException;
 
-import java.util.Iterator;
-
 /**
  * classe AverageLinkDistance
  * Implementa l'interfaccia ClusterDistance per calcolare
@@ -14,29 +11,53 @@ import java.util.Iterator;
  *
  */
 
-public class AverageLinkDistance implements ClusterDistance {
+public class AverageLinkDistance implements LanceWilliamsDistance {
+    /** numero massimo di coppie per cui la media è calcolata coppia per coppia, in modo esatto */
+    private static final int PAIRWISE_LIMIT = 16;
 
     /**
      * metodo distance
-     * restituisce la media delle distanze minime tra i cluster
-     * con la distanza AverageLink
+     * restituisce la media delle distanze tra gli esempi dei due cluster
+     * con la distanza AverageLink; poiché la distanza tra esempi è euclidea al quadrato
+     * la media è calcolata dalle statistiche dei cluster in tempo O(d), invece di scorrere
+     * tutte le |c1|·|c2| coppie. Il risultato coincide con la media coppia per coppia a meno
+     * degli arrotondamenti, come descritto in ClusterStatistics.averageDistance; per i cluster
+     * con al più PAIRWISE_LIMIT coppie, dove i due calcoli costano circa lo stesso, la media è
+     * calcolata coppia per coppia così che le distanze uguali tra piccoli cluster restino uguali
      *
      * @param c1 primo cluster
      * @param c2 secondo cluster
      * @param d dataset
-     * @return media selle distanze tra i cluster
+     * @return media delle distanze tra i cluster
      */
     public double distance(Cluster c1, Cluster c2, Data d) throws InvalidSizeException {
-        double sum = 0.0;
+        if ((long) c1.getSize() * c2.getSize() > PAIRWISE_LIMIT)
+            return c1.getStatistics(d).averageDistance(c2.getStatistics(d));
 
-        Iterator<Integer> it1 = c1.iterator();
-        while (it1.hasNext()) {
-            Example e1 = d.getExample(it1.next());
-            Iterator<Integer> it2 = c2.iterator();
-            while (it2.hasNext())
-                sum += e1.distance(d.getExample(it2.next()));
+        double sum = 0.0;
+        for (int i = 0; i < c1.getSize(); i++) {
+            int e1 = c1.get(i);
+            for (int j = 0; j < c2.getSize(); j++)
+                sum += d.distance(e1, c2.get(j));
         }
 
-        return sum / (c1.getSize() * c2.getSize());
+        return sum / ((long) c1.getSize() * c2.getSize());
+    }
+
+    /**
+     * metodo update
+     * con la distanza AverageLink la distanza dal cluster fuso è la media
+     * delle due distanze di partenza pesata con le dimensioni dei cluster
+     *
+     * @param dik distanza tra il cluster i e il cluster k
+     * @param djk distanza tra il cluster j e il cluster k
+     * @param dij distanza tra il cluster i e il cluster j
+     * @param ni dimensione del cluster i
+     * @param nj dimensione del cluster j
+     * @param nk dimensione del cluster k
+     * @return (ni * dik + nj * djk) / (ni + nj)
+     */
+    public double update(double dik, double djk, double dij, int ni, int nj, int nk) {
+        return (ni * dik + nj * djk) / (ni + nj);
     }
 }
@@ -0,0 +1,58 @@
+package code.distance;
+
+import code.clustering.Cluster;
+import code.data.Data;
+import code.data.InvalidSizeException;
+
+/**
+ * classe CentroidLinkDistance
+ * Implementa il metodo distance dell'interfaccia
+ * ClusterDistance per calcolare la distanza tra due cluster
+ * come la distanza euclidea al quadrato tra i loro centroidi
+ */
+public class CentroidLinkDistance implements LanceWilliamsDistance {
+	/**
+	 * metodo distance
+	 * restituisce la distanza tra i centroidi dei due cluster, calcolata in tempo O(d)
+	 * dalle statistiche dei cluster; tra due esempi è la distanza tra di essi
+	 *
+	 * @param c1 primo cluster
+	 * @param c2 secondo cluster
+	 * @param d dataset
+	 * @return ‖μ1-μ2‖²
+	 */
+	public double distance(Cluster c1, Cluster c2, Data d) throws InvalidSizeException {
+		if (c1.getSize() == 1 && c2.getSize() == 1)
+			return d.distance(c1.get(0), c2.get(0));
+		return c1.getStatistics(d).centroidDistance(c2.getStatistics(d));
+	}
+
+	/**
+	 * metodo update
+	 * con la distanza tra centroidi la distanza dal cluster fuso si ricava
+	 * dalle distanze di partenza pesate con le dimensioni dei cluster fusi
+	 *
+	 * @param dik distanza tra il cluster i e il cluster k
+	 * @param djk distanza tra il cluster j e il cluster k
+	 * @param dij distanza tra il cluster i e il cluster j
+	 * @param ni dimensione del cluster i
+	 * @param nj dimensione del cluster j
+	 * @param nk dimensione del cluster k
+	 * @return (ni * dik + nj * djk) / (ni + nj) - ni * nj * dij / (ni + nj)²
+	 */
+	public double update(double dik, double djk, double dij, int ni, int nj, int nk) {
+		double n = ni + nj;
+		return (ni * dik + nj * djk) / n - (double) ni * nj * dij / (n * n);
+	}
+
+	/**
+	 * metodo isReducible
+	 * la distanza tra centroidi non è riducibile: il centroide del cluster fuso
+	 * può essere più vicino a un terzo cluster di entrambi i cluster di partenza
+	 *
+	 * @return false
+	 */
+	public boolean isReducible() {
+		return false;
+	}
+}
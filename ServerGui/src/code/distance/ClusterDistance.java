@@ -20,4 +20,35 @@ public interface ClusterDistance {
 	 * @return double
 	 */
 	double distance(Cluster c1, Cluster c2, Data d) throws InvalidSizeException;
+
+	/**
+	 * metodo distance
+	 * restituisce la distanza tra c1 e c2 se è minore di threshold; altrimenti può restituire
+	 * un qualsiasi valore non minore di threshold, interrompendo il calcolo appena
+	 * la coppia non può più risultare più vicina di threshold
+	 *
+	 * @param c1 primo cluster
+	 * @param c2 secondo cluster
+	 * @param d dataset
+	 * @param threshold distanza oltre la quale il valore esatto non serve
+	 * @return double
+	 */
+	default double distance(Cluster c1, Cluster c2, Data d, double threshold) throws InvalidSizeException {
+		return distance(c1, c2, d);
+	}
+
+	/**
+	 * metodo lowerBound
+	 * restituisce un limite inferiore della distanza tra c1 e c2, più economico della distanza stessa:
+	 * la ricerca della coppia più vicina scarta senza calcolarne la distanza le coppie il cui limite
+	 * non è minore della distanza migliore trovata. Il limite predefinito, 0, non scarta nessuna coppia
+	 *
+	 * @param c1 primo cluster
+	 * @param c2 secondo cluster
+	 * @param d dataset
+	 * @return limite inferiore della distanza
+	 */
+	default double lowerBound(Cluster c1, Cluster c2, Data d) {
+		return 0;
+	}
 }
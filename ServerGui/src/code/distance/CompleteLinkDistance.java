@@ -0,0 +1,98 @@
+package code.distance;
+
+import code.clustering.Cluster;
+import code.data.Data;
+import code.data.InvalidSizeException;
+
+/**
+ * classe CompleteLinkDistance
+ * Implementa il metodo distance dell'interfaccia
+ * ClusterDistance per calcolare la distanza tra due cluster
+ * come la massima distanza tra i loro esempi
+ */
+public class CompleteLinkDistance implements LanceWilliamsDistance {
+	/**
+	 * metodo distance
+	 * restituisce la massima distanza tra due cluster
+	 * con la distanza completelink
+	 *
+	 * @param c1 primo cluster
+	 * @param c2 secondo cluster
+	 * @param d dataset
+	 * @return max (un double)
+	 */
+	public double distance(Cluster c1, Cluster c2, Data d) throws InvalidSizeException {
+		return distance(c1, c2, d, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * metodo distance
+	 * restituisce la massima distanza tra due cluster, se minore di threshold;
+	 * il calcolo si interrompe appena il massimo corrente raggiunge threshold
+	 *
+	 * @param c1 primo cluster
+	 * @param c2 secondo cluster
+	 * @param d dataset
+	 * @param threshold distanza oltre la quale il valore esatto non serve
+	 * @return max (un double), o un valore non minore di threshold
+	 */
+	public double distance(Cluster c1, Cluster c2, Data d, double threshold) throws InvalidSizeException {
+		double max=0;
+
+		for (int i = 0; i < c1.getSize(); i++) {
+			int e1=c1.get(i);
+			for (int j = 0; j < c2.getSize(); j++) {
+				double distance = d.distance(e1, c2.get(j));
+				if (distance>max) {
+					max=distance;
+					if (max >= threshold)
+						return max;
+				}
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * metodo lowerBound
+	 * restituisce la distanza tra i centroidi dei due cluster;
+	 * per due esempi singoli il limite costerebbe quanto la distanza e vale 0
+	 *
+	 * @param c1 primo cluster
+	 * @param c2 secondo cluster
+	 * @param d dataset
+	 * @return limite inferiore della distanza completelink
+	 */
+	public double lowerBound(Cluster c1, Cluster c2, Data d) {
+		if (c1.getSize() == 1 && c2.getSize() == 1)
+			return 0;
+		return c1.getStatistics(d).maximumDistanceLowerBound(c2.getStatistics(d));
+	}
+
+	/**
+	 * metodo update
+	 * con la distanza completelink la distanza dal cluster fuso
+	 * è la massima tra le due distanze di partenza
+	 *
+	 * @param dik distanza tra il cluster i e il cluster k
+	 * @param djk distanza tra il cluster j e il cluster k
+	 * @param dij distanza tra il cluster i e il cluster j
+	 * @param ni dimensione del cluster i
+	 * @param nj dimensione del cluster j
+	 * @param nk dimensione del cluster k
+	 * @return max(dik, djk)
+	 */
+	public double update(double dik, double djk, double dij, int ni, int nj, int nk) {
+		return Math.max(dik, djk);
+	}
+
+	/**
+	 * metodo isUpdateExact
+	 * il massimo di due distanze non introduce arrotondamenti
+	 *
+	 * @return true
+	 */
+	public boolean isUpdateExact() {
+		return true;
+	}
+}
@@ -0,0 +1,48 @@
+package code.distance;
+
+/**
+ * Interfaccia LanceWilliamsDistance
+ * estende ClusterDistance con la formula di aggiornamento di Lance-Williams:
+ * la distanza tra il cluster ottenuto fondendo i e j e un terzo cluster k
+ * si ricava dalle sole distanze già note, senza riesaminare gli esempi
+ *
+ */
+public interface LanceWilliamsDistance extends ClusterDistance {
+	/**
+	 * metodo update
+	 * restituisce la distanza tra il cluster i∪j e il cluster k
+	 *
+	 * @param dik distanza tra il cluster i e il cluster k
+	 * @param djk distanza tra il cluster j e il cluster k
+	 * @param dij distanza tra il cluster i e il cluster j
+	 * @param ni dimensione del cluster i
+	 * @param nj dimensione del cluster j
+	 * @param nk dimensione del cluster k
+	 * @return distanza tra il cluster i∪j e il cluster k
+	 */
+	double update(double dik, double djk, double dij, int ni, int nj, int nk);
+
+	/**
+	 * metodo isReducible
+	 * indica se la distanza è riducibile: la fusione di due cluster non può
+	 * avvicinare il cluster risultante a un terzo cluster più di quanto lo fossero i due di partenza.
+	 * Solo le distanze riducibili possono essere usate con la catena dei vicini più prossimi
+	 *
+	 * @return true se la distanza è riducibile
+	 */
+	default boolean isReducible() {
+		return true;
+	}
+
+	/**
+	 * metodo isUpdateExact
+	 * indica se update restituisce esattamente il valore che distance calcola sui cluster fusi,
+	 * come il minimo e il massimo di single-link e complete-link; per le altre distanze l'aggiornamento
+	 * e il calcolo diretto arrotondano in modo diverso
+	 *
+	 * @return true se l'aggiornamento è esatto
+	 */
+	default boolean isUpdateExact() {
+		return false;
+	}
+}
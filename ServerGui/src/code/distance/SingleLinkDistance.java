@@ -1,18 +1,19 @@
 package code.distance;
 
 import code.clustering.Cluster;
+import code.data.ClusterStatistics;
 import code.data.Data;
-import code.data.Example;
 import code.data.InvalidSizeException;
 
-import java.util.Iterator;
-
 /**
  * classe SingleLinkDistance
  * Implementa il metodo distance dell'interfaccia
  * ClusterDistance per calcolare la distanza tra due cluster
  */
-public class SingleLinkDistance implements ClusterDistance {
+public class SingleLinkDistance implements LanceWilliamsDistance {
+	/** dimensione minima del cluster più grande per cui si calcola il limite inferiore di ogni esempio dell'altro */
+	private static final int EXAMPLE_BOUND_SIZE = 8;
+
 	/**
 	 * metodo distance
 	 * restituisce la minima distanza tra due cluster
@@ -24,19 +25,83 @@ public class SingleLinkDistance implements ClusterDistance {
 	 * @return min (un double)
 	 */
 	public double distance(Cluster c1, Cluster c2, Data d) throws InvalidSizeException {
+		return distance(c1, c2, d, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * metodo distance
+	 * restituisce la minima distanza tra due cluster, se minore di threshold;
+	 * gli esempi del cluster più piccolo il cui limite inferiore dal cluster più grande
+	 * non è minore del minimo corrente (o di threshold) non vengono confrontati
+	 *
+	 * @param c1 primo cluster
+	 * @param c2 secondo cluster
+	 * @param d dataset
+	 * @param threshold distanza oltre la quale il valore esatto non serve
+	 * @return min (un double), o un valore non minore di threshold
+	 */
+	public double distance(Cluster c1, Cluster c2, Data d, double threshold) throws InvalidSizeException {
+		if (c1.getSize() > c2.getSize()) {
+			Cluster c = c1;
+			c1 = c2;
+			c2 = c;
+		}
+		ClusterStatistics s2 = c2.getSize() >= EXAMPLE_BOUND_SIZE ? c2.getStatistics(d) : null;
 		double min=Double.MAX_VALUE;
 
-		Iterator<Integer> it1 = c1.iterator();
-		while(it1.hasNext()) {
-			Example e1=d.getExample(it1.next());
-			Iterator<Integer> it2 = c2.iterator();
-			while(it2.hasNext()) {
-                double distance = e1.distance(d.getExample(it2.next()));
-                if (distance<min)
+		for (int i = 0; i < c1.getSize(); i++) {
+			int e1=c1.get(i);
+			if (s2 != null && s2.exampleDistanceLowerBound(d, e1) >= Math.min(min, threshold))
+				continue;
+			for (int j = 0; j < c2.getSize(); j++) {
+				double distance = d.distance(e1, c2.get(j));
+				if (distance<min)
 					min=distance;
 			}
 		}
 		return min;
 	}
-}
 
+	/**
+	 * metodo lowerBound
+	 * restituisce la distanza tra i centroidi meno i raggi dei due cluster;
+	 * per due esempi singoli il limite costerebbe quanto la distanza e vale 0
+	 *
+	 * @param c1 primo cluster
+	 * @param c2 secondo cluster
+	 * @param d dataset
+	 * @return limite inferiore della distanza singlelink
+	 */
+	public double lowerBound(Cluster c1, Cluster c2, Data d) {
+		if (c1.getSize() == 1 && c2.getSize() == 1)
+			return 0;
+		return c1.getStatistics(d).minimumDistanceLowerBound(c2.getStatistics(d));
+	}
+
+	/**
+	 * metodo update
+	 * con la distanza singlelink la distanza dal cluster fuso
+	 * è la minima tra le due distanze di partenza
+	 *
+	 * @param dik distanza tra il cluster i e il cluster k
+	 * @param djk distanza tra il cluster j e il cluster k
+	 * @param dij distanza tra il cluster i e il cluster j
+	 * @param ni dimensione del cluster i
+	 * @param nj dimensione del cluster j
+	 * @param nk dimensione del cluster k
+	 * @return min(dik, djk)
+	 */
+	public double update(double dik, double djk, double dij, int ni, int nj, int nk) {
+		return Math.min(dik, djk);
+	}
+
+	/**
+	 * metodo isUpdateExact
+	 * il minimo di due distanze non introduce arrotondamenti
+	 *
+	 * @return true
+	 */
+	public boolean isUpdateExact() {
+		return true;
+	}
+}
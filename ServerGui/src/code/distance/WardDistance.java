@@ -0,0 +1,54 @@
+package code.distance;
+
+import code.clustering.Cluster;
+import code.data.ClusterStatistics;
+import code.data.Data;
+import code.data.InvalidSizeException;
+
+/**
+ * classe WardDistance
+ * Implementa il metodo distance dell'interfaccia
+ * ClusterDistance con il criterio di Ward: la distanza tra due cluster
+ * è proporzionale all'aumento della somma dei quadrati degli scarti dai centroidi
+ * causato dalla loro fusione. Con la normalizzazione 2·na·nb/(na+nb)·‖μa-μb‖²
+ * la distanza tra due esempi è la distanza euclidea al quadrato tra di essi
+ */
+public class WardDistance implements LanceWilliamsDistance {
+	/**
+	 * metodo distance
+	 * restituisce la distanza di Ward tra due cluster, calcolata in tempo O(d)
+	 * dalle statistiche dei cluster; tra due esempi è la distanza tra di essi
+	 *
+	 * @param c1 primo cluster
+	 * @param c2 secondo cluster
+	 * @param d dataset
+	 * @return 2·n1·n2/(n1+n2)·‖μ1-μ2‖²
+	 */
+	public double distance(Cluster c1, Cluster c2, Data d) throws InvalidSizeException {
+		if (c1.getSize() == 1 && c2.getSize() == 1)
+			return d.distance(c1.get(0), c2.get(0));
+
+		ClusterStatistics s1 = c1.getStatistics(d);
+		ClusterStatistics s2 = c2.getStatistics(d);
+		double n1 = s1.getSize();
+		double n2 = s2.getSize();
+		return 2 * n1 * n2 / (n1 + n2) * s1.centroidDistance(s2);
+	}
+
+	/**
+	 * metodo update
+	 * con il criterio di Ward la distanza dal cluster fuso è la combinazione
+	 * delle distanze di partenza pesata con le dimensioni dei tre cluster
+	 *
+	 * @param dik distanza tra il cluster i e il cluster k
+	 * @param djk distanza tra il cluster j e il cluster k
+	 * @param dij distanza tra il cluster i e il cluster j
+	 * @param ni dimensione del cluster i
+	 * @param nj dimensione del cluster j
+	 * @param nk dimensione del cluster k
+	 * @return ((ni + nk) * dik + (nj + nk) * djk - nk * dij) / (ni + nj + nk)
+	 */
+	public double update(double dik, double djk, double dij, int ni, int nj, int nk) {
+		return ((double) (ni + nk) * dik + (double) (nj + nk) * djk - (double) nk * dij) / (ni + nj + nk);
+	}
+}
@@ -1,5 +1,8 @@
 package code.server;
 
+import code.clustering.MiningPool;
+import code.data.Data;
+
 import java.io.*;
 import java.net.*;
 
@@ -42,6 +45,8 @@ public class MultiServer {
             ServerSocket s = new ServerSocket(PORT);
             try (s) {
                 System.out.println("Started: " + s);
+                System.out.println("Thread di clustering: " + MiningPool.getParallelism());
+                System.out.println("Kernel delle distanze: " + Data.getDistanceKernel());
                 while (true) {
                     Socket socket = s.accept();
                     System.out.println("Connessione client: " + socket);
@@ -3,21 +3,25 @@ package code.server;
 import code.clustering.InvalidClustersNumberException;
 import code.clustering.InvalidDepthException;
 import code.data.Data;
+import code.data.DatasetCache;
 import code.data.InvalidSizeException;
 import code.data.NoDataException;
 import code.clustering.HierachicalClusterMiner;
+import code.clustering.MiningMode;
+import code.clustering.MiningPool;
 import code.database.DatabaseConnectionException;
 import code.database.DbAccess;
+import code.database.SchemaCatalog;
 import code.distance.ClusterDistance;
 import code.distance.SingleLinkDistance;
 import code.distance.AverageLinkDistance;
+import code.distance.CompleteLinkDistance;
+import code.distance.WardDistance;
+import code.distance.CentroidLinkDistance;
 import java.io.IOException;               
 import java.io.ObjectOutputStream;     
 import java.io.ObjectInputStream;
 import java.io.FileNotFoundException;
-import java.sql.Connection;            
-import java.sql.DatabaseMetaData;      
-import java.sql.ResultSet;                
 import java.sql.SQLException;           
 import java.util.ArrayList;            
 import java.util.List;
@@ -39,6 +43,25 @@ class ServerOneClient extends Thread {
     /** Oggetto Data che memorizza i dati caricati */
     private Data data;
 
+    /**
+     * Numero massimo di thread del pool di clustering usati da una singola richiesta,
+     * letto dalla proprietà di sistema hclus.requestParallelism (di default metà del pool)
+     */
+    private static final int REQUEST_PARALLELISM = Integer.getInteger("hclus.requestParallelism",
+            Math.max(1, MiningPool.getParallelism() / 2));
+
+    /**
+     * Numero di esempi da cui il clustering è calcolato in modo approssimato, letto dalla proprietà
+     * di sistema hclus.approximate.minExamples (di default un milione)
+     */
+    private static final int APPROXIMATE_EXAMPLES = Integer.getInteger("hclus.approximate.minExamples", 1_000_000);
+
+    /**
+     * Modalità usata per il clustering approssimato, BIRCH o SAMPLE,
+     * letta dalla proprietà di sistema hclus.approximate.mode (di default BIRCH)
+     */
+    private static final MiningMode APPROXIMATE_MODE = MiningMode.valueOf(System.getProperty("hclus.approximate.mode", "BIRCH"));
+
     /**
      * Costruttore per il gestore client.
      *
@@ -58,18 +81,23 @@ class ServerOneClient extends Thread {
      @Override
      public void run() {
           try {
+              DbAccess db = new DbAccess();
               while (true) {
-                  DbAccess db = new DbAccess();
                   int requestType = (int) in.readObject();
                   switch (requestType) {
                       case 0:
                           // Carica dati dal database
                           try {
-                              sendTableNames(db.getConnection());
+                              sendTableNames(db);
                           } catch (DatabaseConnectionException e) {
                               e.printStackTrace();
                           }
                           handleLoadData();
+                          try {
+                              System.out.println("Pool connessioni " + clientSocket + ": " + db.getPoolMetrics());
+                          } catch (DatabaseConnectionException e) {
+                              e.printStackTrace();
+                          }
                           break;
                       case 1:
                           // Esegui clustering
@@ -100,15 +128,9 @@ class ServerOneClient extends Thread {
      }
 
 
-    private void sendTableNames(Connection connection) throws IOException {
+    private void sendTableNames(DbAccess db) throws IOException, DatabaseConnectionException {
         try {
-            DatabaseMetaData metaData = connection.getMetaData();
-            ResultSet tables = metaData.getTables(null, null, "%", new String[]{"TABLE"});
-
-            List<String> tableNames = new ArrayList<>();
-            while (tables.next()) {
-                tableNames.add(tables.getString("TABLE_NAME"));
-            }
+            List<String> tableNames = new ArrayList<>(SchemaCatalog.get().getTableNames(db));
 
             out.writeObject(tableNames); // Send table names list
 
@@ -126,7 +148,8 @@ class ServerOneClient extends Thread {
     private void handleLoadData() throws IOException, ClassNotFoundException {
         String tableName = (String) in.readObject();
         try {
-            this.data = new Data(tableName);
+            this.data = DatasetCache.get().load(tableName);
+            System.out.println("Cache " + clientSocket + ": " + DatasetCache.get());
             out.writeObject("OK");
         } catch (NoDataException e) {
             out.writeObject(e.getMessage());
@@ -150,12 +173,29 @@ class ServerOneClient extends Thread {
 
         try {
             HierachicalClusterMiner clustering = new HierachicalClusterMiner(depth);
-            ClusterDistance distance = distanceType == 1 ? new SingleLinkDistance() : new AverageLinkDistance();
-
-            clustering.mine(data, distance);
+            clustering.setParallelism(REQUEST_PARALLELISM);
+            ClusterDistance distance = switch (distanceType) {
+                case 1 -> new SingleLinkDistance();
+                case 2 -> new CompleteLinkDistance();
+                case 3 -> new WardDistance();
+                case 4 -> new CentroidLinkDistance();
+                default -> new AverageLinkDistance();
+            };
+
+            MiningMode mode = data.getNumberOfExample() >= APPROXIMATE_EXAMPLES ? APPROXIMATE_MODE : MiningMode.AUTO;
+            clustering.mine(data, distance, mode);
+            System.out.println("Clustering " + mode + " " + clientSocket + ": " + clustering.getMetrics());
 
             out.writeObject("OK");
-            out.writeObject(clustering.toString(data));
+            String dendrogram = clustering.toString(data);
+            // il client mostra il testo del dendrogramma: l'approssimazione è segnalata in testa
+            if (clustering.getApproximation() == MiningMode.SAMPLE)
+                dendrogram = String.format("Dendrogramma approssimato su un campione di %d esempi (%.2f%% degli esempi)%n%n",
+                        clustering.getRepresentatives(), clustering.getSamplingRatio() * 100) + dendrogram;
+            else if (clustering.isApproximate())
+                dendrogram = String.format("Dendrogramma approssimato su %d micro-cluster di %d esempi%n%n",
+                        clustering.getRepresentatives(), data.getNumberOfExample()) + dendrogram;
+            out.writeObject(dendrogram);
             String fileName = (String) in.readObject();
             clustering.salva(fileName);
         } catch (InvalidSizeException | InvalidClustersNumberException | IOException |